@@ -0,0 +1,150 @@
+package jp.rubi3.apromise.io.test;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.CountDownLatch;
+
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.io.AsyncFiles;
+import jp.rubi3.apromise.io.BufferPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class AsyncFilesInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        File file = File.createTempFile("AsyncFiles", null);
+        try {
+            assertEquals(Integer.valueOf(5), AsyncFiles.write(file, 0, ByteBuffer.wrap("Hello".getBytes("UTF-8"))).sync().getResult());
+            assertEquals(Integer.valueOf(6), AsyncFiles.write(file, 5, ByteBuffer.wrap(" World".getBytes("UTF-8"))).sync().getResult());
+
+            ByteBuffer read = AsyncFiles.read(file, 6, 100).sync().getResult();
+            assertTrue(read.isDirect());
+            assertEquals("World", new String(bytes(read), "UTF-8"));
+            BufferPool.getDefault().release(read);
+
+            assertEquals("Hello World", new String(bytes(AsyncFiles.readAll(file).sync().getResult()), "UTF-8"));
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(Long.valueOf(5), AsyncFiles.transferTo(file, 3, 5, Channels.newChannel(output)).sync().getResult());
+            assertEquals("lo Wo", output.toString("UTF-8"));
+        } finally {
+            assertTrue(file.delete());
+        }
+        assertTrue(getException(AsyncFiles.readAll(file).sync()) instanceof FileNotFoundException);
+    }
+
+    @Test
+    public void testSubmitWithoutLooper() throws Exception {
+        File file = File.createTempFile("AsyncFiles", null);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    // NOP
+                }
+            }
+        });
+        try {
+            // I/O starts at once, even while the main looper, which settles the promise, is busy
+            Promise<Integer> written = AsyncFiles.write(file, 0, ByteBuffer.wrap("Hello".getBytes("UTF-8")));
+            long deadline = SystemClock.uptimeMillis() + 1000;
+            while (file.length() < 5 && SystemClock.uptimeMillis() < deadline) {
+                SystemClock.sleep(1);
+            }
+            assertEquals(5, file.length());
+            blocked.countDown();
+            assertEquals(Integer.valueOf(5), written.sync().getResult());
+        } finally {
+            blocked.countDown();
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testMappedReadAll() throws Exception {
+        File file = File.createTempFile("AsyncFiles", null);
+        try {
+            byte[] bytes = new byte[(int) AsyncFiles.MMAP_THRESHOLD];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            AsyncFiles.write(file, 0, ByteBuffer.wrap(bytes)).sync();
+            ByteBuffer buffer = AsyncFiles.readAll(file).sync().getResult();
+            assertTrue(buffer instanceof MappedByteBuffer);
+            assertTrue(buffer.isReadOnly());
+            assertArrayEquals(bytes, bytes(buffer));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testBufferPool() throws Exception {
+        BufferPool pool = new BufferPool(16, 1);
+        ByteBuffer first = pool.acquire();
+        ByteBuffer second = pool.acquire();
+        assertTrue(first.isDirect());
+        assertEquals(16, first.capacity());
+        first.put((byte) 1);
+        pool.release(first);
+        pool.release(second);
+        pool.release(ByteBuffer.allocate(16));
+        assertEquals(1, pool.size());
+        ByteBuffer reused = pool.acquire();
+        assertTrue(reused == first);
+        assertEquals(0, reused.position());
+        assertFalse(pool.acquire() == first);
+    }
+
+    @Test
+    public void testBufferPoolDoubleRelease() throws Exception {
+        BufferPool pool = new BufferPool(16, 2);
+        ByteBuffer buffer = pool.acquire();
+        pool.release(buffer);
+        try {
+            pool.release(buffer);
+            fail();
+        } catch (IllegalStateException e) {
+            // NOP
+        }
+        assertEquals(1, pool.size());
+        assertTrue(pool.acquire() == buffer);
+        assertFalse(pool.acquire() == buffer);
+    }
+}
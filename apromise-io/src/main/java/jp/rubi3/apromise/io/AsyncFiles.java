@@ -0,0 +1,225 @@
+package jp.rubi3.apromise.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.rubi3.apromise.Promise;
+
+/**
+ *
+ * AsyncFiles
+ *
+ * File I/O on a small pool of daemon threads. Calls return at once, and promises are settled from the I/O thread,
+ * so callbacks still run on the looper the promise was created on.
+ *
+ * Reads use positional FileChannel calls into direct buffers from BufferPool.getDefault().
+ * Buffers returned by read() and readAll() may be released to the pool when no longer used.
+ * Files of MMAP_THRESHOLD bytes or more are memory mapped by readAll() instead of copied.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class AsyncFiles {
+    public static final long MMAP_THRESHOLD = 1024 * 1024;
+
+    private static final int THREADS = 2;
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "AsyncFiles-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private AsyncFiles() {
+    }
+
+    /**
+     * read bytes of file.
+     *
+     * @param file file to read
+     * @param position position to read from
+     * @param length maximum number of bytes
+     * @return returns promise fulfilled with flipped buffer, which is shorter than length at end of file
+     */
+    @NonNull
+    public static Promise<ByteBuffer> read(@NonNull final File file, final long position, final int length) {
+        assertNonNull("file should not be null.", file);
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("position and length should not be negative.");
+        }
+        return submit(new Callable<ByteBuffer>() {
+            @Override
+            public ByteBuffer call() throws Exception {
+                ByteBuffer buffer = allocate(length);
+                RandomAccessFile input = new RandomAccessFile(file, "r");
+                try {
+                    readFully(input.getChannel(), buffer, position);
+                } finally {
+                    input.close();
+                }
+                buffer.flip();
+                return buffer;
+            }
+        });
+    }
+
+    /**
+     * read whole file.
+     *
+     * @return returns promise fulfilled with flipped buffer, or read only mapped buffer for large file
+     */
+    @NonNull
+    public static Promise<ByteBuffer> readAll(@NonNull final File file) {
+        assertNonNull("file should not be null.", file);
+        return submit(new Callable<ByteBuffer>() {
+            @Override
+            public ByteBuffer call() throws Exception {
+                RandomAccessFile input = new RandomAccessFile(file, "r");
+                try {
+                    FileChannel channel = input.getChannel();
+                    long size = channel.size();
+                    if (size >= MMAP_THRESHOLD) {
+                        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    }
+                    ByteBuffer buffer = allocate((int) size);
+                    readFully(channel, buffer, 0);
+                    buffer.flip();
+                    return buffer;
+                } finally {
+                    input.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * write all remaining bytes of buffer to file. file is created if it does not exist.
+     *
+     * buffer should not be modified until the promise is settled.
+     *
+     * @return returns promise fulfilled with number of bytes written
+     */
+    @NonNull
+    public static Promise<Integer> write(@NonNull final File file, final long position, @NonNull final ByteBuffer buffer) {
+        assertNonNull("file should not be null.", file);
+        assertNonNull("buffer should not be null.", buffer);
+        if (position < 0) {
+            throw new IllegalArgumentException("position should not be negative.");
+        }
+        return submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                RandomAccessFile output = new RandomAccessFile(file, "rw");
+                try {
+                    FileChannel channel = output.getChannel();
+                    int written = 0;
+                    while (buffer.hasRemaining()) {
+                        written += channel.write(buffer, position + written);
+                    }
+                    return written;
+                } finally {
+                    output.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * transfer bytes of file to channel, without copying through java heap where the platform allows.
+     *
+     * @param count maximum number of bytes
+     * @return returns promise fulfilled with number of bytes transferred
+     */
+    @NonNull
+    public static Promise<Long> transferTo(@NonNull final File file, final long position, final long count,
+                                           @NonNull final WritableByteChannel target) {
+        assertNonNull("file should not be null.", file);
+        assertNonNull("target should not be null.", target);
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count should not be negative.");
+        }
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                RandomAccessFile input = new RandomAccessFile(file, "r");
+                try {
+                    FileChannel channel = input.getChannel();
+                    long end = Math.min(channel.size(), position + count);
+                    long transferred = 0;
+                    while (position + transferred < end) {
+                        long one = channel.transferTo(position + transferred, end - position - transferred, target);
+                        if (one <= 0) {
+                            break;
+                        }
+                        transferred += one;
+                    }
+                    return transferred;
+                } finally {
+                    input.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return returns executor which runs file I/O
+     */
+    @NonNull
+    public static Executor getExecutor() {
+        return EXECUTOR;
+    }
+
+    private static <D> Promise<D> submit(final Callable<D> callable) {
+        // handed to the I/O thread at once, and settled on the looper of the caller, or the main looper
+        return Promise.async(null, EXECUTOR, callable);
+    }
+
+    private static ByteBuffer allocate(int length) {
+        BufferPool pool = BufferPool.getDefault();
+        if (length > pool.getBufferSize()) {
+            return ByteBuffer.allocateDirect(length);
+        }
+        ByteBuffer buffer = pool.acquire();
+        buffer.limit(length);
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return;
+            }
+            offset += read;
+        }
+    }
+
+    private static void assertNonNull(String message, Object object) {
+        if (object == null) {
+            throw new NullPointerException(message);
+        }
+    }
+}
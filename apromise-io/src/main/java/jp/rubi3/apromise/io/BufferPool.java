@@ -0,0 +1,110 @@
+package jp.rubi3.apromise.io;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ *
+ * BufferPool
+ *
+ * Bounded pool of direct buffers of one size. acquire() never blocks: a new buffer is allocated when the pool is empty,
+ * and release() drops the buffer when the pool is full. Releasing is optional, unreleased buffers are just collected.
+ * A buffer should be released at most once, by its last user, as the pool hands it out again.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class BufferPool {
+    private static final BufferPool DEFAULT = new BufferPool(64 * 1024, 16);
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    // guarded by buffers
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+    // buffers in the pool by identity, as equals() of ByteBuffer compares contents
+    private final Set<ByteBuffer> pooled = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+
+    /**
+     * @param bufferSize capacity of each buffer
+     * @param maxBuffers maximum number of buffers kept in the pool
+     */
+    public BufferPool(int bufferSize, int maxBuffers) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize should be greater than 0.");
+        }
+        if (maxBuffers < 0) {
+            throw new IllegalArgumentException("maxBuffers should not be negative.");
+        }
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+    }
+
+    /**
+     * @return returns pool used by AsyncFiles
+     */
+    @NonNull
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return returns cleared direct buffer of buffer size
+     */
+    @NonNull
+    public ByteBuffer acquire() {
+        ByteBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers.poll();
+            if (buffer != null) {
+                pooled.remove(buffer);
+            }
+        }
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * return buffer to pool. buffers not from this pool are ignored.
+     *
+     * buffer should not be used after release. releasing it twice would hand it to two users,
+     * so a buffer still in the pool is refused.
+     *
+     * @throws IllegalStateException if buffer is already in the pool
+     */
+    public void release(@NonNull ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != bufferSize || buffer.isReadOnly()) {
+            return;
+        }
+        synchronized (buffers) {
+            if (pooled.contains(buffer)) {
+                throw new IllegalStateException("buffer is already released.");
+            }
+            if (buffers.size() >= maxBuffers) {
+                return;
+            }
+            pooled.add(buffer);
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * @return returns number of buffers kept in the pool
+     */
+    public int size() {
+        synchronized (buffers) {
+            return buffers.size();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package jp.rubi3.apromise.reactivestreams.test;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jp.rubi3.apromise.AsyncStream;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.reactivestreams.ReactiveStreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class ReactiveStreamsInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static class RangePublisher implements Publisher<Integer> {
+        final int count;
+        final List<Long> requests = new ArrayList<>();
+        volatile boolean cancelled;
+
+        RangePublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int next;
+
+                @Override
+                public void request(long n) {
+                    requests.add(n);
+                    for (long i = 0; i < n && next < count && !cancelled; i++) {
+                        subscriber.onNext(next++);
+                    }
+                    if (next == count && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static class RecordingSubscriber<T> implements Subscriber<T> {
+        final List<Object> signals = Collections.synchronizedList(new ArrayList<>());
+        Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T element) {
+            signals.add(element);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signals.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add("complete");
+        }
+
+        void await(int size) {
+            long deadline = SystemClock.uptimeMillis() + 1000;
+            while (signals.size() < size && SystemClock.uptimeMillis() < deadline) {
+                SystemClock.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void testFromPublisher() throws Exception {
+        RangePublisher publisher = new RangePublisher(10);
+        assertEquals(Integer.valueOf(0), ReactiveStreams.fromPublisher(publisher).sync().getResult());
+        assertEquals(Collections.singletonList(1L), publisher.requests);
+        assertTrue(publisher.cancelled);
+        assertNull(ReactiveStreams.fromPublisher(new RangePublisher(0)).sync().getResult());
+    }
+
+    @Test
+    public void testFromPublisherList() throws Exception {
+        assertEquals(Arrays.asList(0, 1, 2), ReactiveStreams.fromPublisherList(new RangePublisher(3)).sync().getResult());
+    }
+
+    @Test
+    public void testFromPublisherCancel() throws Exception {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        Promise<Integer> promise = ReactiveStreams.fromPublisher(new Publisher<Integer>() {
+            @Override
+            public void subscribe(Subscriber<? super Integer> subscriber) {
+                subscriber.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                        cancelled.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue(promise.cancel());
+        assertTrue(getException(promise.sync()) instanceof CancellationException);
+        assertTrue(cancelled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testToPublisher() throws Exception {
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+        ReactiveStreams.toPublisher(Promise.resolve("OK")).subscribe(subscriber);
+        SystemClock.sleep(50);
+        assertTrue(subscriber.signals.isEmpty());
+        subscriber.subscription.request(1);
+        subscriber.await(2);
+        assertEquals(Arrays.<Object>asList("OK", "complete"), subscriber.signals);
+
+        Exception exception = new Exception();
+        RecordingSubscriber<Void> rejected = new RecordingSubscriber<>();
+        ReactiveStreams.toPublisher(Promise.reject(exception)).subscribe(rejected);
+        rejected.subscription.request(1);
+        rejected.await(1);
+        assertEquals(Collections.<Object>singletonList(exception), rejected.signals);
+    }
+
+    @Test
+    public void testStreamToPublisher() throws Exception {
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        ReactiveStreams.toPublisher(AsyncStream.fromIterable(Arrays.asList(1, 2, 3))).subscribe(subscriber);
+        subscriber.subscription.request(2);
+        subscriber.await(2);
+        SystemClock.sleep(50);
+        assertEquals(Arrays.<Object>asList(1, 2), subscriber.signals);
+        subscriber.subscription.request(5);
+        subscriber.await(4);
+        assertEquals(Arrays.<Object>asList(1, 2, 3, "complete"), subscriber.signals);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        RangePublisher publisher = new RangePublisher(200);
+        Publisher<Integer> stream = ReactiveStreams.toPublisher(AsyncStream.fromIterable(
+                ReactiveStreams.fromPublisherList(publisher).sync().getResult()));
+        List<Integer> result = ReactiveStreams.fromPublisherList(stream).sync().getResult();
+        assertEquals(200, result.size());
+        assertEquals(Integer.valueOf(199), result.get(199));
+    }
+
+    @Test
+    public void testStreamToPublisherThrows() throws Exception {
+        final IllegalStateException exception = new IllegalStateException("NG");
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        ReactiveStreams.toPublisher(new AsyncStream<Integer>() {
+            @Override
+            public Promise<List<Integer>> request(int n) {
+                throw exception;
+            }
+        }).subscribe(subscriber);
+        subscriber.subscription.request(1);
+        subscriber.await(1);
+        assertEquals(Collections.<Object>singletonList(exception), subscriber.signals);
+
+        // further requests are not stuck behind the failed drain
+        subscriber.subscription.request(1);
+        SystemClock.sleep(50);
+        assertEquals(1, subscriber.signals.size());
+
+        RecordingSubscriber<Integer> throwing = new RecordingSubscriber<Integer>() {
+            @Override
+            public void onNext(Integer element) {
+                super.onNext(element);
+                throw exception;
+            }
+        };
+        ReactiveStreams.toPublisher(AsyncStream.fromIterable(Arrays.asList(1, 2, 3))).subscribe(throwing);
+        throwing.subscription.request(3);
+        throwing.await(2);
+        SystemClock.sleep(50);
+        assertEquals(Arrays.<Object>asList(1, exception), throwing.signals);
+    }
+}
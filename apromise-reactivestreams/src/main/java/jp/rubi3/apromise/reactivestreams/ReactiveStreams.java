@@ -0,0 +1,385 @@
+package jp.rubi3.apromise.reactivestreams;
+
+import android.support.annotation.NonNull;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.rubi3.apromise.AsyncStream;
+import jp.rubi3.apromise.CallbackNonNull;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+/**
+ *
+ * ReactiveStreams
+ *
+ * Adapters between Promise, AsyncStream and Reactive Streams Publisher.
+ *
+ * Signals are passed through as they arrive, without blocking threads or queueing more than was requested.
+ * Publishers created here emit on the looper of the adapted promise.
+ *
+ * Cancelling a subscription stops signals, but not the work already started: a stream publisher does not
+ * cancel the AsyncStream.request in flight, and a promise publisher leaves its finallyCallback registered
+ * on the promise until it settles.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class ReactiveStreams {
+    private static final int BATCH_SIZE = 64;
+
+    private ReactiveStreams() {
+    }
+
+    /**
+     * create promise of first element of publisher.
+     *
+     * subscription is cancelled after first element, or when the promise is cancelled.
+     *
+     * @return returns promise fulfilled with first element or null if publisher completes empty
+     */
+    @NonNull
+    public static <T> Promise<T> fromPublisher(@NonNull Publisher<T> publisher) {
+        assertNonNull("publisher should not be null.", publisher);
+        return subscribe(publisher, new PromiseSubscriber<T, T>(1) {
+            @Override
+            void next(T element) {
+                // cancel first, so the subscription is over once the promise is fulfilled
+                cancel();
+                resolver.fulfill(element);
+            }
+
+            @Override
+            void complete() {
+                resolver.fulfill(null);
+            }
+        });
+    }
+
+    /**
+     * create promise of all elements of publisher.
+     *
+     * subscription is cancelled when the promise is cancelled.
+     */
+    @NonNull
+    public static <T> Promise<List<T>> fromPublisherList(@NonNull Publisher<T> publisher) {
+        assertNonNull("publisher should not be null.", publisher);
+        return subscribe(publisher, new PromiseSubscriber<T, List<T>>(Long.MAX_VALUE) {
+            private final List<T> elements = new ArrayList<>();
+
+            @Override
+            void next(T element) {
+                elements.add(element);
+            }
+
+            @Override
+            void complete() {
+                resolver.fulfill(elements);
+            }
+        });
+    }
+
+    /**
+     * create publisher of promise.
+     *
+     * promise is observed after the first request. null result completes without element.
+     */
+    @NonNull
+    public static <T> Publisher<T> toPublisher(@NonNull final Promise<T> promise) {
+        assertNonNull("promise should not be null.", promise);
+        return new Publisher<T>() {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                assertNonNull("subscriber should not be null.", subscriber);
+                subscriber.onSubscribe(new PromiseSubscription<>(promise, subscriber));
+            }
+        };
+    }
+
+    /**
+     * create publisher of stream.
+     *
+     * stream is requested only as much as subscriber requested. stream should be subscribed once.
+     */
+    @NonNull
+    public static <T> Publisher<T> toPublisher(@NonNull final AsyncStream<T> stream) {
+        assertNonNull("stream should not be null.", stream);
+        return new Publisher<T>() {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                assertNonNull("subscriber should not be null.", subscriber);
+                subscriber.onSubscribe(new StreamSubscription<>(stream, subscriber));
+            }
+        };
+    }
+
+    private static <T, D> Promise<D> subscribe(final Publisher<T> publisher, final PromiseSubscriber<T, D> subscriber) {
+        Promise<D> promise = new Promise<>(new Function<D>() {
+            @Override
+            public void function(@NonNull Resolver<D> resolver) throws Exception {
+                subscriber.resolver = resolver;
+                publisher.subscribe(subscriber);
+            }
+        });
+        promise.finallyCallback(new CallbackNonNull<Promise<D>>() {
+            @Override
+            public void callback(@NonNull Promise<D> result) throws Exception {
+                subscriber.cancel();
+            }
+        });
+        return promise;
+    }
+
+    private static void assertNonNull(String message, Object object) {
+        if (object == null) {
+            throw new NullPointerException(message);
+        }
+    }
+
+    private abstract static class PromiseSubscriber<T, D> implements Subscriber<T> {
+        private static final Subscription CANCELLED = new Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+
+        private final AtomicReference<Subscription> subscription = new AtomicReference<>();
+        private final long demand;
+        Resolver<D> resolver;
+
+        PromiseSubscriber(long demand) {
+            this.demand = demand;
+        }
+
+        abstract void next(T element);
+
+        abstract void complete();
+
+        @Override
+        public final void onSubscribe(Subscription subscription) {
+            assertNonNull("subscription should not be null.", subscription);
+            if (!this.subscription.compareAndSet(null, subscription)) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(demand);
+        }
+
+        @Override
+        public final void onNext(T element) {
+            assertNonNull("element should not be null.", element);
+            if (subscription.get() != CANCELLED) {
+                next(element);
+            }
+        }
+
+        @Override
+        public final void onError(Throwable throwable) {
+            assertNonNull("throwable should not be null.", throwable);
+            subscription.set(CANCELLED);
+            resolver.reject(throwable instanceof Exception
+                    ? (Exception) throwable : new RuntimeException(throwable));
+        }
+
+        @Override
+        public final void onComplete() {
+            if (subscription.getAndSet(CANCELLED) != CANCELLED) {
+                complete();
+            }
+        }
+
+        final void cancel() {
+            Subscription current = subscription.getAndSet(CANCELLED);
+            if (current != null && current != CANCELLED) {
+                current.cancel();
+            }
+        }
+    }
+
+    private static final class PromiseSubscription<T> implements Subscription, CallbackNonNull<Promise<T>> {
+        private static final int IDLE = 0;
+        private static final int REQUESTED = 1;
+        private static final int DONE = 2;
+
+        private final Promise<T> promise;
+        private final Subscriber<? super T> subscriber;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+
+        PromiseSubscription(Promise<T> promise, Subscriber<? super T> subscriber) {
+            this.promise = promise;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (state.getAndSet(DONE) != DONE) {
+                    subscriber.onError(new IllegalArgumentException("n should be greater than 0."));
+                }
+                return;
+            }
+            if (state.compareAndSet(IDLE, REQUESTED)) {
+                promise.finallyCallback(this);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            state.set(DONE);
+        }
+
+        @Override
+        public void callback(@NonNull Promise<T> result) throws Exception {
+            if (!state.compareAndSet(REQUESTED, DONE)) {
+                return;
+            }
+            T element;
+            try {
+                element = result.getResult();
+            } catch (Exception e) {
+                subscriber.onError(e);
+                return;
+            }
+            if (element != null) {
+                subscriber.onNext(element);
+            }
+            subscriber.onComplete();
+        }
+    }
+
+    private static final class StreamSubscription<T> implements Subscription, CallbackNonNull<Promise<List<T>>> {
+        private final AsyncStream<T> stream;
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile Promise<List<T>> settled;
+        private volatile Exception error;
+        private volatile boolean cancelled;
+        // guarded by wip
+        private boolean inFlight;
+        private boolean done;
+
+        StreamSubscription(AsyncStream<T> stream, Subscriber<? super T> subscriber) {
+            this.stream = stream;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("n should be greater than 0.");
+                drain();
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void callback(@NonNull Promise<List<T>> result) throws Exception {
+            settled = result;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!done && !cancelled) {
+                    try {
+                        step();
+                    } catch (RuntimeException e) {
+                        // thrown by stream or subscriber, which would otherwise leave wip held forever
+                        fail(e);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void step() {
+            Promise<List<T>> promise = settled;
+            if (promise != null) {
+                settled = null;
+                inFlight = false;
+                emit(promise);
+            }
+            if (!done && !inFlight && error != null) {
+                done = true;
+                subscriber.onError(error);
+            }
+            long demand = requested.get();
+            if (!done && !cancelled && !inFlight && demand > 0) {
+                inFlight = true;
+                stream.request((int) Math.min(demand, BATCH_SIZE)).finallyCallback(this);
+            }
+        }
+
+        private void fail(RuntimeException e) {
+            if (done) {
+                // thrown by onError or onComplete, and nothing is left to signal
+                return;
+            }
+            done = true;
+            try {
+                subscriber.onError(e);
+            } catch (RuntimeException ignored) {
+                // NOP
+            }
+        }
+
+        private void emit(Promise<List<T>> promise) {
+            List<T> elements;
+            try {
+                elements = promise.getResult();
+            } catch (Exception e) {
+                done = true;
+                subscriber.onError(e);
+                return;
+            }
+            if (elements == null) {
+                done = true;
+                subscriber.onComplete();
+                return;
+            }
+            for (T element : elements) {
+                if (cancelled) {
+                    return;
+                }
+                if (element == null) {
+                    done = true;
+                    subscriber.onError(new NullPointerException("stream should not contain null."));
+                    return;
+                }
+                subscriber.onNext(element);
+            }
+            if (requested.get() != Long.MAX_VALUE) {
+                requested.addAndGet(-elements.size());
+            }
+        }
+    }
+}
@@ -15,17 +15,22 @@ import org.junit.runner.RunWith;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jp.rubi3.apromise.Callback;
 import jp.rubi3.apromise.CallbackNonNull;
 import jp.rubi3.apromise.Filter;
 import jp.rubi3.apromise.FilterNonNull;
 import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.LatencyTracker;
 import jp.rubi3.apromise.PendingException;
 import jp.rubi3.apromise.Pipe;
 import jp.rubi3.apromise.PipeNonNull;
 import jp.rubi3.apromise.Promise;
 import jp.rubi3.apromise.Resolver;
+import jp.rubi3.apromise.RetryPolicy;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -760,6 +765,253 @@ public class APromiseInstrumentationTest {
         assertEquals("OK", getException(promise).getMessage());
     }
 
+    @Test
+    public void testLazyNotCalledUntilNeeded() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        Promise<String> promise = Promise.lazy(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                builder.append("called");
+                resolver.fulfill("OK");
+            }
+        });
+        assertTrue(promise.isPending());
+        assertEquals("", builder.toString());
+        Promise<String> result = promise.thenFilter(new Filter<String, String>() {
+            @Nullable
+            @Override
+            public String filter(@Nullable String result) throws Exception {
+                return result;
+            }
+        });
+        assertEquals("OK", result.sync().getResult());
+        assertEquals("called", builder.toString());
+    }
+
+    @Test
+    public void testLazyStartedBySync() throws Exception {
+        Promise<String> promise = Promise.lazy(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                resolver.fulfill("OK");
+            }
+        });
+        assertEquals("OK", promise.sync().getResult());
+    }
+
+    @Test
+    public void testLazyCancelled() throws Exception {
+        Promise<String> promise = Promise.lazy(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                fail();
+            }
+        });
+        assertTrue(promise.cancel());
+        assertFalse(promise.cancel());
+        assertTrue(promise.sync().isRejected());
+        assertTrue(getException(promise) instanceof CancellationException);
+    }
+
+    @Test
+    public void testCancelIgnoresLateResolve() throws Exception {
+        Promise<String> promise = delayedResolve("NG", 100);
+        assertTrue(promise.cancel());
+        Promise<String> result = promise.catchFilter(new FilterNonNull<Exception, String>() {
+            @Nullable
+            @Override
+            public String filter(@NonNull Exception result) throws Exception {
+                return result instanceof CancellationException ? "OK" : "NG";
+            }
+        });
+        assertEquals("OK", result.sync().getResult());
+        Thread.sleep(200);
+        assertTrue(promise.isRejected());
+    }
+
+    private Function<String> failUntil(final AtomicInteger attempts, final int succeedAt) {
+        return new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                if (attempts.incrementAndGet() < succeedAt) {
+                    throw new Exception("NG" + attempts.get());
+                }
+                resolver.fulfill("OK");
+            }
+        };
+    }
+
+    @Test
+    public void testRetryFulfilled() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Promise<String> promise = Promise.retry(failUntil(attempts, 3), new RetryPolicy(5, 10).setJitter(0.5));
+        assertEquals("OK", promise.sync().getResult());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testRetryGiveUp() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Promise<String> promise = Promise.retry(failUntil(attempts, 10), new RetryPolicy(2, 10));
+        assertEquals("NG2", getException(promise.sync()).getMessage());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testRetryIf() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Promise<String> promise = Promise.retry(failUntil(attempts, 10), new RetryPolicy(5, 10).setRetryIf(new FilterNonNull<Exception, Boolean>() {
+            @Nullable
+            @Override
+            public Boolean filter(@NonNull Exception result) throws Exception {
+                return !"NG1".equals(result.getMessage());
+            }
+        }));
+        assertEquals("NG1", getException(promise.sync()).getMessage());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testRetryPipe() throws Exception {
+        Promise<String> promise = Promise.retry(new Pipe<Integer, String>() {
+            @Nullable
+            @Override
+            public Promise<String> pipe(@Nullable Integer result) throws Exception {
+                //noinspection ConstantConditions
+                return result < 2 ? Promise.reject(new Exception("NG"), String.class) : Promise.resolve("OK" + result);
+            }
+        }, new RetryPolicy(3, 10));
+        assertEquals("OK2", promise.sync().getResult());
+    }
+
+    @Test
+    public void testRetryDeadlineBeforeNextAttempt() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Promise<String> promise = Promise.retry(failUntil(attempts, 10), new RetryPolicy(10, 1000).setTimeout(100));
+        assertEquals("NG1", getException(promise.sync()).getMessage());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testRetryDelayOverflow() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        // second delay overflows without max delay, and is capped instead of breaking the timer
+        Promise<String> promise = Promise.retry(failUntil(attempts, 100),
+                new RetryPolicy(100, 1).setMultiplier(1e300).setTimeout(10000));
+        assertEquals("NG2", getException(promise.sync()).getMessage());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testRetryTimeout() throws Exception {
+        Promise<String> promise = Promise.retry(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                // never settles
+            }
+        }, new RetryPolicy(3, 10).setTimeout(100));
+        assertTrue(getException(promise.sync()) instanceof TimeoutException);
+    }
+
+    @Test
+    public void testRetryTimeoutCancelsAttempt() throws Exception {
+        final List<Promise<String>> attempts = new ArrayList<>();
+        Promise<String> promise = Promise.retry(new Pipe<Integer, String>() {
+            @Override
+            public Promise<String> pipe(@Nullable Integer result) throws Exception {
+                Promise<String> attempt = new Promise<>(new Function<String>() {
+                    @Override
+                    public void function(@NonNull Resolver<String> resolver) throws Exception {
+                        // never settles
+                    }
+                });
+                attempts.add(attempt);
+                return attempt;
+            }
+        }, new RetryPolicy(3, 10).setTimeout(100));
+        assertTrue(getException(promise.sync()) instanceof TimeoutException);
+        assertEquals(1, attempts.size());
+        assertTrue(getException(attempts.get(0).sync()) instanceof CancellationException);
+    }
+
+    @Test
+    public void testRetryPolicyMultiplier() throws Exception {
+        for (double multiplier : new double[] {0.5, 0, -2, Double.NaN}) {
+            try {
+                new RetryPolicy(3, 10).setMultiplier(multiplier);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // NOP
+            }
+        }
+        new RetryPolicy(3, 10).setMultiplier(1);
+    }
+
+    private Function<String> slowFirst(final AtomicInteger attempts, final List<Resolver<String>> first) {
+        return new Function<String>() {
+            @Override
+            public void function(@NonNull final Resolver<String> resolver) throws Exception {
+                final int attempt = attempts.incrementAndGet();
+                if (attempt == 1) {
+                    first.add(resolver);
+                    return;
+                }
+                handler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        resolver.fulfill("OK" + attempt);
+                    }
+                }, 10);
+            }
+        };
+    }
+
+    @Test
+    public void testHedgeNotLaunchedForFastAttempt() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Promise<String> promise = Promise.hedge(failUntil(attempts, 1), 1000, 2);
+        assertEquals("OK", promise.sync().getResult());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testHedgeSlowAttempt() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Resolver<String>> first = new ArrayList<>();
+        Promise<String> promise = Promise.hedge(slowFirst(attempts, first), 50, 2);
+        assertEquals("OK2", promise.sync().getResult());
+        assertEquals(2, attempts.get());
+        first.get(0).fulfill("NG");
+        assertEquals("OK2", promise.getResult());
+    }
+
+    @Test
+    public void testHedgeAllRejected() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Promise<String> promise = Promise.hedge(failUntil(attempts, 10), 50, 2);
+        assertEquals("NG3", getException(promise.sync()).getMessage());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testHedgeWithTracker() throws Exception {
+        LatencyTracker tracker = new LatencyTracker(1, 0.5, 50);
+        AtomicInteger attempts = new AtomicInteger();
+        List<Resolver<String>> first = new ArrayList<>();
+        assertEquals("OK2", Promise.hedge(slowFirst(attempts, first), tracker, 1).sync().getResult());
+        assertTrue(tracker.getDelay() < 50);
+    }
+
+    @Test
+    public void testHedgeNegative() throws Exception {
+        try {
+            Promise.hedge(failUntil(new AtomicInteger(), 0), 50, -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // NOP
+        }
+    }
+
     @Test
     public void testPendingException() throws Exception {
         Promise<String> promise = Promise.resolve("OK");
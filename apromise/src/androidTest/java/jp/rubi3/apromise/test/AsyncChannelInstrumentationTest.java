@@ -0,0 +1,113 @@
+package jp.rubi3.apromise.test;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.rubi3.apromise.AsyncChannel;
+import jp.rubi3.apromise.Promise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class AsyncChannelInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        AsyncChannel<Integer> channel = new AsyncChannel<>(2);
+        assertTrue(channel.send(1).isFulfilled());
+        assertTrue(channel.send(2).isFulfilled());
+        Promise<Void> full = channel.send(3);
+        assertTrue(full.isPending());
+        assertEquals(1, (int) channel.receive().getResult());
+        assertTrue(full.sync().isFulfilled());
+        assertEquals(2, (int) channel.receive().getResult());
+        assertEquals(3, (int) channel.receive().getResult());
+    }
+
+    @Test
+    public void testReceiveBeforeSend() throws Exception {
+        AsyncChannel<String> channel = new AsyncChannel<>(1);
+        Promise<String> one = channel.receive();
+        Promise<String> two = channel.receive();
+        assertTrue(one.isPending());
+        channel.send("1");
+        channel.send("2");
+        assertEquals("1", one.sync().getResult());
+        assertEquals("2", two.sync().getResult());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        AsyncChannel<String> channel = new AsyncChannel<>(1);
+        channel.send("OK");
+        Promise<Void> pending = channel.send("NG");
+        channel.close();
+        assertTrue(getException(pending.sync()) instanceof ClosedChannelException);
+        assertTrue(getException(channel.send("NG")) instanceof ClosedChannelException);
+        assertEquals("OK", channel.receive().sync().getResult());
+        assertTrue(getException(channel.receive().sync()) instanceof ClosedChannelException);
+    }
+
+    @Test
+    public void testCancelledReceiverSkipped() throws Exception {
+        AsyncChannel<String> channel = new AsyncChannel<>(1);
+        Promise<String> cancelled = channel.receive();
+        Promise<String> next = channel.receive();
+        cancelled.cancel();
+        channel.send("OK");
+        assertEquals("OK", next.sync().getResult());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final AsyncChannel<Integer> channel = new AsyncChannel<>(4);
+        final int producers = 4;
+        final int count = 1000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * count;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        channel.send(base + i).sync();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        boolean[] seen = new boolean[producers * count];
+        int[] last = new int[producers];
+        for (int i = 0; i < producers; i++) {
+            last[i] = -1;
+        }
+        for (int i = 0; i < producers * count; i++) {
+            //noinspection ConstantConditions
+            int value = channel.receive().sync().getResult();
+            assertTrue(!seen[value]);
+            seen[value] = true;
+            assertTrue(value % count > last[value / count]);
+            last[value / count] = value % count;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class AsyncInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        final Thread caller = Thread.currentThread();
+        Promise<String> promise = Promise.async(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                assertNotSame(caller, Thread.currentThread());
+                return "OK";
+            }
+        });
+        assertEquals("OK", promise.await());
+    }
+
+    @Test
+    public void testAsyncRejected() throws Exception {
+        final Exception exception = new Exception("NG");
+        Promise<String> promise = Promise.async(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw exception;
+            }
+        });
+        try {
+            promise.await();
+            fail();
+        } catch (Exception e) {
+            assertSame(exception, e);
+        }
+        assertSame(exception, getException(promise));
+    }
+
+    @Test
+    public void testAwaitInAsync() throws Exception {
+        final AtomicReference<Resolver<Integer>> resolver = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final Promise<Integer> source = new Promise<>(new Function<Integer>() {
+            @Override
+            public void function(@NonNull Resolver<Integer> r) throws Exception {
+                resolver.set(r);
+                started.countDown();
+            }
+        });
+        List<Promise<Integer>> promises = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final int one = i;
+            promises.add(Promise.async(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return source.await() + one;
+                }
+            }));
+        }
+        started.await();
+        resolver.get().fulfill(1000);
+        List<Integer> results = Promise.all(promises).await();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(1000 + i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void testAsyncExecutor() throws Exception {
+        final AtomicBoolean executed = new AtomicBoolean();
+        Promise<String> promise = Promise.async(null, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                executed.set(true);
+                new Thread(command).start();
+            }
+        }, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "OK";
+            }
+        });
+        assertEquals("OK", promise.await());
+        assertTrue(executed.get());
+    }
+
+    @Test
+    public void testAwaitOnOwnLooper() throws Exception {
+        HandlerThread thread = new HandlerThread("testAwaitOnOwnLooper");
+        thread.start();
+        final AtomicReference<Exception> thrown = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        new Handler(thread.getLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                Promise<String> pending = new Promise<>(new Function<String>() {
+                    @Override
+                    public void function(@NonNull Resolver<String> resolver) throws Exception {
+                    }
+                });
+                try {
+                    pending.await();
+                } catch (Exception e) {
+                    thrown.set(e);
+                }
+                try {
+                    // settled promises are returned on any looper
+                    assertEquals("OK", Promise.resolve("OK").await());
+                } catch (Exception e) {
+                    thrown.set(e);
+                }
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(thrown.get() instanceof IllegalStateException);
+        thread.quit();
+    }
+}
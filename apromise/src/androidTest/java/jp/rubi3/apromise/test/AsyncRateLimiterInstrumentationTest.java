@@ -0,0 +1,62 @@
+package jp.rubi3.apromise.test;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.rubi3.apromise.AsyncRateLimiter;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class AsyncRateLimiterInstrumentationTest {
+    @Test
+    public void testBurst() throws Exception {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.acquire().isFulfilled());
+        }
+        Promise<Void> waiting = limiter.acquire();
+        assertTrue(waiting.isPending());
+        long start = SystemClock.uptimeMillis();
+        assertTrue(waiting.sync().isFulfilled());
+        assertTrue(SystemClock.uptimeMillis() - start >= 50);
+    }
+
+    @Test
+    public void testFifo() throws Exception {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(100, 1);
+        List<Promise<Void>> promises = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            promises.add(limiter.acquire());
+        }
+        promises.get(2).sync();
+        assertTrue(promises.get(1).isFulfilled());
+        assertFalse(promises.get(4).isFulfilled());
+        promises.get(4).sync();
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(1, 1);
+        Pipe<String, String> pipe = limiter.limit(new Pipe<String, String>() {
+            @Nullable
+            @Override
+            public Promise<String> pipe(@Nullable String result) throws Exception {
+                return Promise.resolve(result + "K");
+            }
+        });
+        assertEquals("OK", Promise.resolve("O").thenPipe(pipe).sync().getResult());
+        assertTrue(Promise.resolve("O").thenPipe(pipe).isPending());
+    }
+}
@@ -0,0 +1,122 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.rubi3.apromise.AsyncMutex;
+import jp.rubi3.apromise.AsyncSemaphore;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Permit;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class AsyncSemaphoreInstrumentationTest {
+    private Handler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        HandlerThread thread = new HandlerThread("AsyncSemaphoreTest");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    @Test
+    public void testAcquireAndRelease() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(2);
+        Promise<Permit> one = semaphore.acquire();
+        Promise<Permit> two = semaphore.acquire();
+        Promise<Permit> three = semaphore.acquire();
+        assertTrue(one.isFulfilled());
+        assertTrue(two.isFulfilled());
+        assertTrue(three.isPending());
+        //noinspection ConstantConditions
+        one.getResult().release();
+        //noinspection ConstantConditions
+        one.getResult().release();
+        assertTrue(three.sync().isFulfilled());
+        assertEquals(0, semaphore.availablePermits());
+    }
+
+    @Test
+    public void testFifo() throws Exception {
+        AsyncMutex mutex = new AsyncMutex();
+        Promise<Permit> first = mutex.lock();
+        List<Promise<Permit>> waiters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            waiters.add(mutex.lock());
+        }
+        //noinspection ConstantConditions
+        first.getResult().release();
+        assertTrue(waiters.get(0).sync().isFulfilled());
+        assertTrue(waiters.get(1).isPending());
+        assertTrue(waiters.get(2).isPending());
+        //noinspection ConstantConditions
+        waiters.get(0).getResult().release();
+        assertTrue(waiters.get(1).sync().isFulfilled());
+        assertTrue(mutex.isLocked());
+    }
+
+    @Test
+    public void testCancelledWaiterSkipped() throws Exception {
+        AsyncMutex mutex = new AsyncMutex();
+        Promise<Permit> first = mutex.lock();
+        Promise<Permit> cancelled = mutex.lock();
+        Promise<Permit> next = mutex.lock();
+        assertTrue(cancelled.cancel());
+        //noinspection ConstantConditions
+        first.getResult().release();
+        assertTrue(next.sync().isFulfilled());
+    }
+
+    @Test
+    public void testWithPermit() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        Pipe<Integer, Integer> pipe = semaphore.withPermit(new Pipe<Integer, Integer>() {
+            @Nullable
+            @Override
+            public Promise<Integer> pipe(@Nullable final Integer result) throws Exception {
+                maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+                return new Promise<>(new Function<Integer>() {
+                    @Override
+                    public void function(@NonNull final Resolver<Integer> resolver) throws Exception {
+                        handler.postDelayed(new Runnable() {
+                            @Override
+                            public void run() {
+                                running.decrementAndGet();
+                                resolver.fulfill(result);
+                            }
+                        }, 20);
+                    }
+                });
+            }
+        });
+        List<Promise<Integer>> promises = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            promises.add(Promise.resolve(i).thenPipe(pipe));
+        }
+        assertEquals(6, Promise.all(promises).sync().getResult().size());
+        assertEquals(2, maxRunning.get());
+        Thread.sleep(50);
+        assertEquals(2, semaphore.availablePermits());
+        assertFalse(new AsyncMutex().isLocked());
+    }
+}
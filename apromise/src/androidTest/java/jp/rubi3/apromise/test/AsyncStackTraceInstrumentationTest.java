@@ -0,0 +1,113 @@
+package jp.rubi3.apromise.test;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jp.rubi3.apromise.AsyncStackTrace;
+import jp.rubi3.apromise.Filter;
+import jp.rubi3.apromise.FilterNonNull;
+import jp.rubi3.apromise.Promise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class AsyncStackTraceInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static Filter<String, String> failing(final Exception exception) {
+        return new Filter<String, String>() {
+            @Override
+            public String filter(@Nullable String result) throws Exception {
+                throw exception;
+            }
+        };
+    }
+
+    private static Promise<String> chainFailing(Exception exception) {
+        return Promise.resolve("OK").thenFilter(failing(exception));
+    }
+
+    private static AsyncStackTrace findSite(Throwable exception) {
+        AsyncStackTrace found = null;
+        for (Throwable suppressed : exception.getSuppressed()) {
+            if (suppressed instanceof AsyncStackTrace) {
+                assertNull("site attached twice", found);
+                found = (AsyncStackTrace) suppressed;
+            }
+        }
+        return found;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AsyncStackTrace.disable();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertFalse(AsyncStackTrace.isEnabled());
+        Exception exception = new Exception("NG");
+        assertSame(exception, getException(chainFailing(exception).sync()));
+        assertNull(findSite(exception));
+    }
+
+    @Test
+    public void testAttached() throws Exception {
+        AsyncStackTrace.enable(1, 3);
+        Exception exception = new Exception("NG");
+        assertSame(exception, getException(chainFailing(exception).sync()));
+
+        AsyncStackTrace site = findSite(exception);
+        assertNotNull(site);
+        StackTraceElement[] frames = site.getStackTrace();
+        assertEquals(3, frames.length);
+        assertEquals(getClass().getName(), frames[0].getClassName());
+        assertEquals("chainFailing", frames[0].getMethodName());
+    }
+
+    @Test
+    public void testRejectedAgain() throws Exception {
+        AsyncStackTrace.enable(1, 32);
+        Exception exception = new Exception("NG");
+        final Exception again = exception;
+        Promise<String> promise = chainFailing(exception).catchFilter(new FilterNonNull<Exception, String>() {
+            @Override
+            public String filter(@NonNull Exception result) throws Exception {
+                throw again;
+            }
+        });
+        assertSame(exception, getException(promise.sync()));
+        assertEquals("chainFailing", findSite(exception).getStackTrace()[0].getMethodName());
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        AsyncStackTrace.enable(1000000, 32);
+        int attached = 0;
+        for (int i = 0; i < 100; i++) {
+            Exception exception = new Exception("NG");
+            chainFailing(exception).sync();
+            if (findSite(exception) != null) {
+                attached++;
+            }
+        }
+        assertTrue(attached <= 1);
+    }
+}
@@ -0,0 +1,159 @@
+package jp.rubi3.apromise.test;
+
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jp.rubi3.apromise.Accumulator;
+import jp.rubi3.apromise.AsyncStream;
+import jp.rubi3.apromise.Filter;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class AsyncStreamInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static AsyncStream<Integer> pages(final int count, final List<Integer> loaded) {
+        return AsyncStream.fromPages(new Pipe<Integer, List<Integer>>() {
+            @Nullable
+            @Override
+            public Promise<List<Integer>> pipe(@Nullable Integer result) throws Exception {
+                loaded.add(result);
+                if (result == null || result >= count) {
+                    return null;
+                }
+                return Promise.resolve(Arrays.asList(result * 10, result * 10 + 1, result * 10 + 2));
+            }
+        });
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        List<Integer> loaded = new ArrayList<>();
+        AsyncStream<Integer> stream = pages(2, loaded);
+        assertTrue(loaded.isEmpty());
+        assertEquals(Arrays.asList(0, 1), stream.request(2).sync().getResult());
+        assertEquals(Arrays.asList(2), stream.request(2).sync().getResult());
+        assertEquals(Collections.singletonList(0), loaded);
+        assertEquals(Arrays.asList(10, 11, 12), stream.request(5).sync().getResult());
+        assertNull(stream.request(5).sync().getResult());
+    }
+
+    @Test
+    public void testOperators() throws Exception {
+        List<Integer> loaded = new ArrayList<>();
+        List<List<Integer>> result = pages(100, loaded)
+                .filter(new Filter<Integer, Boolean>() {
+                    @Override
+                    public Boolean filter(@Nullable Integer result) throws Exception {
+                        //noinspection ConstantConditions
+                        return result % 2 == 0;
+                    }
+                })
+                .map(new Filter<Integer, Integer>() {
+                    @Override
+                    public Integer filter(@Nullable Integer result) throws Exception {
+                        //noinspection ConstantConditions
+                        return result / 2;
+                    }
+                })
+                .take(5)
+                .buffer(2)
+                .toList().sync().getResult();
+        assertEquals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(5, 6), Arrays.asList(10)), result);
+        assertEquals(Arrays.asList(0, 1, 2), loaded);
+    }
+
+    @Test
+    public void testFlatMap() throws Exception {
+        List<Integer> result = AsyncStream.fromIterable(Arrays.asList(1, 0, 3))
+                .flatMap(new Filter<Integer, AsyncStream<Integer>>() {
+                    @Override
+                    public AsyncStream<Integer> filter(@Nullable Integer result) throws Exception {
+                        //noinspection ConstantConditions
+                        return AsyncStream.fromIterable(Collections.nCopies(result, result));
+                    }
+                })
+                .toList().sync().getResult();
+        assertEquals(Arrays.asList(1, 3, 3, 3), result);
+    }
+
+    @Test
+    public void testFold() throws Exception {
+        Integer sum = AsyncStream.fromPromise(Promise.resolve(Arrays.asList(1, 2, 3)))
+                .flatMap(new Filter<List<Integer>, AsyncStream<Integer>>() {
+                    @Override
+                    public AsyncStream<Integer> filter(@Nullable List<Integer> result) throws Exception {
+                        //noinspection ConstantConditions
+                        return AsyncStream.fromIterable(result);
+                    }
+                })
+                .fold(0, new Accumulator<Integer, Integer>() {
+                    @Override
+                    public Integer accumulate(@Nullable Integer accumulated, @Nullable Integer result) throws Exception {
+                        //noinspection ConstantConditions
+                        return accumulated + result;
+                    }
+                }).sync().getResult();
+        assertEquals(Integer.valueOf(6), sum);
+    }
+
+    @Test
+    public void testFirst() throws Exception {
+        List<Integer> loaded = new ArrayList<>();
+        assertEquals(Integer.valueOf(0), pages(100, loaded).first().sync().getResult());
+        assertEquals(Collections.singletonList(0), loaded);
+        assertNull(AsyncStream.fromIterable(Collections.<Integer>emptyList()).first().sync().getResult());
+    }
+
+    @Test
+    public void testReject() throws Exception {
+        final Exception exception = new Exception();
+        Promise<List<Integer>> promise = AsyncStream.fromIterable(Arrays.asList(1, 2))
+                .map(new Filter<Integer, Integer>() {
+                    @Override
+                    public Integer filter(@Nullable Integer result) throws Exception {
+                        throw exception;
+                    }
+                })
+                .toList().sync();
+        assertTrue(promise.isRejected());
+        assertEquals(exception, getException(promise));
+    }
+
+    @Test
+    public void testRequestBounds() throws Exception {
+        try {
+            AsyncStream.fromIterable(Arrays.asList(1, 2)).request(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // NOP
+        }
+
+        AsyncStream<List<Integer>> stream = AsyncStream.fromIterable(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)).buffer(3);
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6)), stream.request(2).sync().getResult());
+        assertEquals(Collections.singletonList(Arrays.asList(7, 8, 9)), stream.request(1).sync().getResult());
+        assertEquals(Collections.singletonList(Collections.singletonList(10)), stream.request(5).sync().getResult());
+        assertNull(stream.request(1).sync().getResult());
+    }
+}
@@ -0,0 +1,108 @@
+package jp.rubi3.apromise.test;
+
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jp.rubi3.apromise.BatchLoader;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class BatchLoaderInstrumentationTest {
+    private HandlerThread thread;
+    private List<List<Integer>> batches;
+
+    @Before
+    public void setUp() throws Exception {
+        thread = new HandlerThread("BatchLoaderTest");
+        thread.start();
+        batches = new ArrayList<>();
+    }
+
+    private Pipe<List<Integer>, Map<Integer, String>> batch() {
+        return new Pipe<List<Integer>, Map<Integer, String>>() {
+            @Nullable
+            @Override
+            public Promise<Map<Integer, String>> pipe(@Nullable List<Integer> result) throws Exception {
+                batches.add(result);
+                Map<Integer, String> values = new HashMap<>();
+                //noinspection ConstantConditions
+                for (Integer key : result) {
+                    if (key >= 0) {
+                        values.put(key, "value" + key);
+                    }
+                }
+                return Promise.resolve(values);
+            }
+        };
+    }
+
+    private List<Promise<String>> loadInOneTick(final BatchLoader<Integer, String> loader, final Integer... keys) throws Exception {
+        return new Promise<>(thread.getLooper(), new Function<List<Promise<String>>>() {
+            @Override
+            public void function(@NonNull Resolver<List<Promise<String>>> resolver) throws Exception {
+                List<Promise<String>> promises = new ArrayList<>();
+                for (Integer key : keys) {
+                    promises.add(loader.load(key));
+                }
+                resolver.fulfill(promises);
+            }
+        }).sync().getResult();
+    }
+
+    @Test
+    public void testBatchInOneTick() throws Exception {
+        BatchLoader<Integer, String> loader = new BatchLoader<>(thread.getLooper(), batch(), 100);
+        List<Promise<String>> promises = loadInOneTick(loader, 1, 1, 2, -1);
+        assertSame(promises.get(0), promises.get(1));
+        assertEquals("value1", promises.get(0).sync().getResult());
+        assertEquals("value2", promises.get(2).sync().getResult());
+        assertNull(promises.get(3).sync().getResult());
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList(1, 2, -1), batches.get(0));
+
+        assertEquals("value1", loader.load(1).sync().getResult());
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void testMaxBatchSize() throws Exception {
+        BatchLoader<Integer, String> loader = new BatchLoader<>(thread.getLooper(), batch(), 2);
+        List<Promise<String>> promises = loadInOneTick(loader, 0, 1, 2, 3, 4);
+        assertEquals("value4", promises.get(4).sync().getResult());
+        assertEquals(3, batches.size());
+        assertEquals(Arrays.asList(4), batches.get(2));
+    }
+
+    @Test
+    public void testBatchRejected() throws Exception {
+        BatchLoader<Integer, String> loader = new BatchLoader<>(thread.getLooper(), new Pipe<List<Integer>, Map<Integer, String>>() {
+            @Nullable
+            @Override
+            public Promise<Map<Integer, String>> pipe(@Nullable List<Integer> result) throws Exception {
+                throw new Exception("OK");
+            }
+        }, 10);
+        Promise<String> promise = loader.load(1);
+        assertTrue(promise.sync().isRejected());
+    }
+}
@@ -0,0 +1,133 @@
+package jp.rubi3.apromise.test;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.rubi3.apromise.CircuitBreaker;
+import jp.rubi3.apromise.CircuitOpenException;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class CircuitBreakerInstrumentationTest {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Function<String> result(final boolean success) {
+        return new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                calls.incrementAndGet();
+                if (!success) {
+                    throw new Exception("NG");
+                }
+                resolver.fulfill("OK");
+            }
+        };
+    }
+
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Test
+    public void testOpenAndClose() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 4, 10000, 100);
+        breaker.execute(result(true)).sync();
+        for (int i = 0; i < 3; i++) {
+            breaker.execute(result(false)).sync();
+        }
+        Thread.sleep(50);
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState());
+
+        Promise<String> denied = breaker.execute(result(true));
+        assertTrue(denied.isRejected());
+        assertTrue(getException(denied) instanceof CircuitOpenException);
+        assertEquals(4, calls.get());
+
+        Thread.sleep(100);
+        assertEquals("OK", breaker.execute(result(true)).sync().getResult());
+        Thread.sleep(50);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testTrialFailureReopens() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 10000, 100);
+        breaker.execute(result(false)).sync();
+        Thread.sleep(150);
+        breaker.execute(result(false)).sync();
+        Thread.sleep(50);
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState());
+        assertTrue(getException(breaker.execute(result(true))) instanceof CircuitOpenException);
+    }
+
+    @Test
+    public void testTrialNeverSettles() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 10000, 100);
+        breaker.execute(result(false)).sync();
+        Thread.sleep(150);
+        Promise<String> trial = breaker.execute(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+            }
+        });
+        assertTrue(trial.isPending());
+        assertTrue(getException(breaker.execute(result(true))) instanceof CircuitOpenException);
+
+        // abandoned trial gives way to another one
+        Thread.sleep(150);
+        assertEquals("OK", breaker.execute(result(true)).sync().getResult());
+        Thread.sleep(50);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testWrap() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 10000, 10000);
+        Pipe<String, String> pipe = breaker.wrap(new Pipe<String, String>() {
+            @Nullable
+            @Override
+            public Promise<String> pipe(@Nullable String result) throws Exception {
+                calls.incrementAndGet();
+                throw new Exception(result);
+            }
+        });
+        assertEquals("NG", getException(Promise.resolve("NG").thenPipe(pipe).sync()).getMessage());
+        Promise<String> denied = Promise.resolve("NG").thenPipe(pipe).sync();
+        assertTrue(getException(denied) instanceof CircuitOpenException);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testMinimumCalls() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 10, 10000, 10000);
+        for (int i = 0; i < 5; i++) {
+            breaker.execute(result(false)).sync();
+        }
+        Thread.sleep(50);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState());
+        try {
+            breaker.execute(null);
+            fail();
+        } catch (NullPointerException e) {
+            // NOP
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jp.rubi3.apromise.Filter;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.LooperPool;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class LooperPoolInstrumentationTest {
+    @Test
+    public void testBalance() throws Exception {
+        LooperPool pool = new LooperPool("testBalance", 3);
+        try {
+            final List<Resolver<String>> resolvers = new ArrayList<>();
+            List<Promise<String>> promises = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                promises.add(pool.submit(new Function<String>() {
+                    @Override
+                    public void function(@NonNull Resolver<String> resolver) throws Exception {
+                        synchronized (resolvers) {
+                            resolvers.add(resolver);
+                        }
+                    }
+                }));
+            }
+            assertArrayEquals(new int[]{2, 2, 2}, pool.getPendingCounts());
+            while (true) {
+                synchronized (resolvers) {
+                    if (resolvers.size() == 6) {
+                        for (Resolver<String> resolver : resolvers) {
+                            resolver.fulfill(Thread.currentThread().getName());
+                        }
+                        break;
+                    }
+                }
+                Thread.sleep(1);
+            }
+
+            Set<String> threads = new HashSet<>();
+            for (Promise<String> promise : promises) {
+                threads.add(promise.thenFilter(new Filter<String, String>() {
+                    @Override
+                    public String filter(@Nullable String result) throws Exception {
+                        return Thread.currentThread().getName();
+                    }
+                }).sync().getResult());
+            }
+            assertEquals(3, threads.size());
+            for (String thread : threads) {
+                assertTrue(thread.startsWith("testBalance-"));
+            }
+            Thread.sleep(50);
+            assertArrayEquals(new int[]{0, 0, 0}, pool.getPendingCounts());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testNext() throws Exception {
+        LooperPool pool = new LooperPool("testNext", 2);
+        try {
+            Looper first = pool.next();
+            Looper second = pool.next();
+            assertTrue(first != second);
+            assertTrue(first != Looper.myLooper());
+            assertEquals(2, pool.size());
+        } finally {
+            pool.close();
+        }
+    }
+}
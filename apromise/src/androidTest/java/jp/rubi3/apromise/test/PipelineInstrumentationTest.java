@@ -0,0 +1,155 @@
+package jp.rubi3.apromise.test;
+
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.rubi3.apromise.Callback;
+import jp.rubi3.apromise.Filter;
+import jp.rubi3.apromise.FilterNonNull;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Pipeline;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(AndroidJUnit4.class)
+public class PipelineInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static Filter<Integer, Integer> twice() {
+        return new Filter<Integer, Integer>() {
+            @Override
+            public Integer filter(@Nullable Integer result) throws Exception {
+                if (result == null || result < 0) {
+                    throw new IllegalArgumentException("negative");
+                }
+                return result * 2;
+            }
+        };
+    }
+
+    @Test
+    public void testStages() throws Exception {
+        final AtomicInteger called = new AtomicInteger();
+        Pipeline<Integer, String> pipeline = Pipeline.<Integer>create()
+                .thenFilter(twice())
+                .thenPipe(new Pipe<Integer, Integer>() {
+                    @Override
+                    public Promise<Integer> pipe(@Nullable Integer result) throws Exception {
+                        return Promise.resolve(result + 1);
+                    }
+                })
+                .thenCallback(new Callback<Integer>() {
+                    @Override
+                    public void callback(@Nullable Integer result) throws Exception {
+                        called.incrementAndGet();
+                    }
+                })
+                .thenFilter(new Filter<Integer, String>() {
+                    @Override
+                    public String filter(@Nullable Integer result) throws Exception {
+                        return "#" + result;
+                    }
+                });
+        assertEquals(4, pipeline.size());
+
+        List<Promise<String>> promises = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            promises.add(pipeline.apply(i));
+        }
+        List<String> results = Promise.all(promises).sync().getResult();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("#" + (i * 2 + 1), results.get(i));
+        }
+        assertEquals(1000, called.get());
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        final AtomicInteger called = new AtomicInteger();
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>create()
+                .thenFilter(twice())
+                .thenFilter(twice())
+                .thenCallback(new Callback<Integer>() {
+                    @Override
+                    public void callback(@Nullable Integer result) throws Exception {
+                        called.incrementAndGet();
+                    }
+                });
+        Exception exception = getException(pipeline.apply(-1).sync());
+        assertEquals("negative", exception.getMessage());
+        assertEquals(0, called.get());
+
+        Pipeline<Integer, Integer> caught = pipeline.catchFilter(new FilterNonNull<Exception, Integer>() {
+            @Override
+            public Integer filter(@NonNull Exception result) throws Exception {
+                return 0;
+            }
+        });
+        assertEquals(0, (int) caught.apply(-1).sync().getResult());
+        assertEquals(12, (int) caught.apply(3).sync().getResult());
+        assertEquals(3, pipeline.size());
+    }
+
+    @Test
+    public void testPipeOnOtherLooper() throws Exception {
+        final HandlerThread other = new HandlerThread("other");
+        other.start();
+        final AtomicReference<Looper> looper = new AtomicReference<>();
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>create()
+                .thenPipe(new Pipe<Integer, Integer>() {
+                    @Override
+                    public Promise<Integer> pipe(@Nullable final Integer result) throws Exception {
+                        return new Promise<>(other.getLooper(), new Function<Integer>() {
+                            @Override
+                            public void function(@NonNull Resolver<Integer> resolver) throws Exception {
+                                resolver.fulfill(result + 1);
+                            }
+                        });
+                    }
+                })
+                .thenCallback(new Callback<Integer>() {
+                    @Override
+                    public void callback(@Nullable Integer result) throws Exception {
+                        looper.set(Looper.myLooper());
+                    }
+                });
+        assertEquals(2, (int) pipeline.apply(1).sync().getResult());
+        assertSame(Looper.getMainLooper(), looper.get());
+        other.quit();
+    }
+
+    @Test
+    public void testPipeNull() throws Exception {
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>create()
+                .thenPipe(new Pipe<Integer, Integer>() {
+                    @Override
+                    public Promise<Integer> pipe(@Nullable Integer result) throws Exception {
+                        return null;
+                    }
+                });
+        assertNull(pipeline.apply(1).sync().getResult());
+    }
+}
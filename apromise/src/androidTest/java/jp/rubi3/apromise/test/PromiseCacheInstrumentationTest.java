@@ -0,0 +1,138 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.PromiseCache;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PromiseCacheInstrumentationTest {
+    private Handler handler;
+    private AtomicInteger calls;
+
+    @Before
+    public void setUp() throws Exception {
+        HandlerThread thread = new HandlerThread("PromiseCacheTest");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        calls = new AtomicInteger();
+    }
+
+    private <F> Function<F> delayedResolve(final F result, final long delayMillis) {
+        return new Function<F>() {
+            @Override
+            public void function(@NonNull final Resolver<F> resolver) throws Exception {
+                calls.incrementAndGet();
+                handler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        resolver.fulfill(result);
+                    }
+                }, delayMillis);
+            }
+        };
+    }
+
+    private <F> Function<F> reject(final Exception exception) {
+        return new Function<F>() {
+            @Override
+            public void function(@NonNull Resolver<F> resolver) throws Exception {
+                calls.incrementAndGet();
+                resolver.reject(exception);
+            }
+        };
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        PromiseCache<String, String> cache = new PromiseCache<>(10);
+        Promise<String> one = cache.get("key", delayedResolve("OK", 100));
+        Promise<String> two = cache.get("key", delayedResolve("NG", 100));
+        assertSame(one, two);
+        assertEquals("OK", two.sync().getResult());
+        assertEquals(1, calls.get());
+        assertSame(one, cache.get("key", delayedResolve("NG", 0)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testRejectionNotCached() throws Exception {
+        PromiseCache<String, String> cache = new PromiseCache<>(10);
+        Promise<String> rejected = cache.get("key", this.<String>reject(new Exception("NG")));
+        assertTrue(rejected.sync().isRejected());
+        Thread.sleep(50);
+        assertNull(cache.getIfPresent("key"));
+        assertEquals("OK", cache.get("key", delayedResolve("OK", 0)).sync().getResult());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testRejectionCachedWithTtl() throws Exception {
+        PromiseCache<String, String> cache = new PromiseCache<>(10, 0, 10000);
+        Promise<String> rejected = cache.get("key", this.<String>reject(new Exception("NG")));
+        assertTrue(rejected.sync().isRejected());
+        Thread.sleep(50);
+        assertSame(rejected, cache.get("key", delayedResolve("OK", 0)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        PromiseCache<String, String> cache = new PromiseCache<>(10, 100, 0);
+        Promise<String> first = cache.get("key", delayedResolve("OK", 0));
+        assertEquals("OK", first.sync().getResult());
+        Thread.sleep(200);
+        assertNull(cache.getIfPresent("key"));
+        assertNotSame(first, cache.get("key", delayedResolve("OK", 0)));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        PromiseCache<Integer, Integer> cache = new PromiseCache<>(1);
+        // continuations run in order, so the cache has seen the entry settle once they run
+        cache.get(1, delayedResolve(1, 0)).thenCallback(null).sync();
+        cache.get(2, delayedResolve(2, 0)).thenCallback(null).sync();
+        assertNull(cache.getIfPresent(1));
+        assertEquals(2, (int) cache.getIfPresent(2).getResult());
+        assertEquals(1, cache.size());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        PromiseCache<Integer, Integer> cache = new PromiseCache<>(17);
+        for (int i = 0; i < 100; i++) {
+            cache.get(i, delayedResolve(i, 0)).thenCallback(null).sync();
+        }
+        assertEquals(17, cache.size());
+    }
+
+    @Test
+    public void testPendingNotEvicted() throws Exception {
+        PromiseCache<Integer, Integer> cache = new PromiseCache<>(1);
+        Promise<Integer> loading = cache.get(1, delayedResolve(1, 200));
+        cache.get(2, delayedResolve(2, 0)).thenCallback(null).sync();
+        assertSame(loading, cache.get(1, delayedResolve(1, 0)));
+        assertEquals(1, (int) loading.sync().getResult());
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,119 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jp.rubi3.apromise.Filter;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.PromiseContext;
+import jp.rubi3.apromise.Resolver;
+import jp.rubi3.apromise.RetryPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PromiseContextInstrumentationTest {
+    private static final PromiseContext.Key<String> TRACE = new PromiseContext.Key<>("trace");
+    private static final PromiseContext.Key<Long> DEADLINE = new PromiseContext.Key<>("deadline");
+
+    @Test
+    public void testCopyOnWrite() throws Exception {
+        PromiseContext empty = PromiseContext.EMPTY;
+        PromiseContext traced = empty.with(TRACE, "A");
+        PromiseContext both = traced.with(DEADLINE, 100L);
+        assertTrue(empty.isEmpty());
+        assertNull(empty.get(TRACE));
+        assertEquals("A", traced.get(TRACE));
+        assertNull(traced.get(DEADLINE));
+        assertEquals(Long.valueOf(100L), both.get(DEADLINE));
+        assertEquals("B", both.with(TRACE, "B").get(TRACE));
+        assertEquals("A", both.get(TRACE));
+        assertSame(traced, traced.with(TRACE, "A"));
+        assertSame(PromiseContext.EMPTY, traced.without(TRACE));
+        assertNull(both.with(TRACE, null).get(TRACE));
+    }
+
+    @Test
+    public void testPropagation() throws Exception {
+        final HandlerThread thread = new HandlerThread("testPropagation");
+        thread.start();
+        PromiseContext previous = PromiseContext.EMPTY.with(TRACE, "A").attach();
+        Promise<String> promise;
+        try {
+            promise = new Promise<>(thread.getLooper(), new Function<String>() {
+                @Override
+                public void function(@NonNull final Resolver<String> resolver) throws Exception {
+                    resolver.fulfill(PromiseContext.current().get(TRACE));
+                }
+            }).thenPipe(new Pipe<String, String>() {
+                @Nullable
+                @Override
+                public Promise<String> pipe(@Nullable final String result) throws Exception {
+                    final Handler handler = new Handler(thread.getLooper());
+                    return new Promise<>(new Function<String>() {
+                        @Override
+                        public void function(@NonNull final Resolver<String> resolver) throws Exception {
+                            handler.post(PromiseContext.wrap(new Runnable() {
+                                @Override
+                                public void run() {
+                                    resolver.fulfill(result + PromiseContext.current().get(TRACE));
+                                }
+                            }));
+                        }
+                    });
+                }
+            }).thenFilter(new Filter<String, String>() {
+                @Override
+                public String filter(@Nullable String result) throws Exception {
+                    return result + PromiseContext.current().get(TRACE);
+                }
+            });
+        } finally {
+            PromiseContext.current().detach(previous);
+        }
+        assertTrue(PromiseContext.current().isEmpty());
+        assertEquals("AAA", promise.sync().getResult());
+        thread.quit();
+    }
+
+    @Test
+    public void testLazyAndRetry() throws Exception {
+        PromiseContext previous = PromiseContext.EMPTY.with(TRACE, "A").attach();
+        Promise<String> lazy;
+        Promise<String> retried;
+        try {
+            lazy = Promise.lazy(new Function<String>() {
+                @Override
+                public void function(@NonNull Resolver<String> resolver) throws Exception {
+                    resolver.fulfill(PromiseContext.current().get(TRACE));
+                }
+            });
+            retried = Promise.retry(new Pipe<Integer, String>() {
+                @Nullable
+                @Override
+                public Promise<String> pipe(@Nullable Integer result) throws Exception {
+                    //noinspection ConstantConditions
+                    if (result < 3) {
+                        throw new Exception();
+                    }
+                    return Promise.resolve(PromiseContext.current().get(TRACE));
+                }
+            }, new RetryPolicy(3, 10));
+        } finally {
+            PromiseContext.current().detach(previous);
+        }
+        assertEquals("A", lazy.sync().getResult());
+        assertEquals("A", retried.sync().getResult());
+    }
+}
@@ -0,0 +1,130 @@
+package jp.rubi3.apromise.test;
+
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.PromiseDiskCache;
+import jp.rubi3.apromise.Resolver;
+import jp.rubi3.apromise.Serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class PromiseDiskCacheInstrumentationTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Serializer<String> SERIALIZER = new Serializer<String>() {
+        @NonNull
+        @Override
+        public byte[] serialize(@NonNull String object) throws Exception {
+            return object.getBytes(UTF_8);
+        }
+
+        @NonNull
+        @Override
+        public String deserialize(@NonNull byte[] bytes) throws Exception {
+            return new String(bytes, UTF_8);
+        }
+    };
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("PromiseDiskCacheTest", ".data");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private Function<String> resolve(final String result) {
+        return new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                resolver.fulfill(result);
+            }
+        };
+    }
+
+    private Function<String> never() {
+        return new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                fail();
+            }
+        };
+    }
+
+    private void closeAndWait(PromiseDiskCache<String> cache) throws Exception {
+        Thread.sleep(100);
+        cache.close();
+        Thread.sleep(200);
+    }
+
+    @Test
+    public void testStoreAndReopen() throws Exception {
+        PromiseDiskCache<String> cache = new PromiseDiskCache<>(file, SERIALIZER);
+        assertEquals("OK", cache.get("key", resolve("OK")).sync().getResult());
+        closeAndWait(cache);
+
+        cache = new PromiseDiskCache<>(file, SERIALIZER);
+        Promise<String> stored = cache.get("key", never());
+        assertTrue(stored.isFulfilled());
+        assertEquals("OK", stored.getResult());
+        closeAndWait(cache);
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        PromiseDiskCache<String> cache = new PromiseDiskCache<>(file, SERIALIZER);
+        cache.put("key", "OK");
+        Thread.sleep(100);
+        assertNotNull(cache.getIfPresent("key"));
+        cache.remove("key");
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent("key"));
+        closeAndWait(cache);
+
+        cache = new PromiseDiskCache<>(file, SERIALIZER);
+        assertNull(cache.getIfPresent("key"));
+        closeAndWait(cache);
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        PromiseDiskCache<String> cache = new PromiseDiskCache<>(file, SERIALIZER);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key", "value" + i);
+        }
+        cache.put("other", "OK");
+        Thread.sleep(200);
+        long before = file.length();
+        cache.compact();
+        Thread.sleep(200);
+        assertTrue(file.length() < before);
+        assertEquals("value99", cache.getIfPresent("key").getResult());
+        assertEquals("OK", cache.getIfPresent("other").getResult());
+        closeAndWait(cache);
+
+        cache = new PromiseDiskCache<>(file, SERIALIZER);
+        assertEquals(2, cache.size());
+        assertEquals("value99", cache.getIfPresent("key").getResult());
+        closeAndWait(cache);
+    }
+}
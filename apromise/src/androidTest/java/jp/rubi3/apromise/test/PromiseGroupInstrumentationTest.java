@@ -0,0 +1,115 @@
+package jp.rubi3.apromise.test;
+
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import jp.rubi3.apromise.Accumulator;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.PromiseGroup;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PromiseGroupInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static Accumulator<Long, Integer> sum() {
+        return new Accumulator<Long, Integer>() {
+            @Override
+            public Long accumulate(@Nullable Long accumulated, @Nullable Integer result) throws Exception {
+                return accumulated + result;
+            }
+        };
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        final int size = 100000;
+        final int threads = 4;
+        final PromiseGroup<Integer> group = new PromiseGroup<>(size);
+        Promise<List<Integer>> all = group.all();
+        Promise<Long> fold = group.fold(0L, sum());
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < size; i += threads) {
+                        group.fulfill(i, i);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        List<Integer> results = all.sync().getResult();
+        assertEquals(size, results.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(i, (int) results.get(i));
+        }
+        assertEquals((long) size * (size - 1) / 2, (long) fold.sync().getResult());
+        assertEquals(0, group.getRemaining());
+        assertSame(group, group.allSettled().sync().getResult());
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        PromiseGroup<Integer> group = new PromiseGroup<>(3);
+        Promise<PromiseGroup<Integer>> settled = group.allSettled();
+        Exception exception = new Exception("NG");
+        assertTrue(group.fulfill(0, 1));
+        assertTrue(group.reject(1, exception));
+        assertFalse(group.fulfill(1, 2));
+
+        // all is rejected without waiting for remaining slots
+        assertSame(exception, getException(group.all().sync()));
+        assertTrue(settled.isPending());
+        assertTrue(group.isPending(2));
+
+        group.resolver(2).fulfill(3);
+        assertSame(group, settled.sync().getResult());
+        assertTrue(group.isFulfilled(0));
+        assertTrue(group.isRejected(1));
+        assertSame(exception, group.getException(1));
+        assertNull(group.getResult(1));
+        assertEquals(3, (int) group.getResult(2));
+        assertSame(exception, getException(group.fold(0L, sum()).sync()));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        PromiseGroup<Integer> group = new PromiseGroup<>(0);
+        assertTrue(group.all().sync().getResult().isEmpty());
+        assertEquals(0L, (long) group.fold(0L, sum()).sync().getResult());
+    }
+
+    @Test
+    public void testResolver() throws Exception {
+        PromiseGroup<String> group = new PromiseGroup<>(2);
+        Resolver<String> first = group.resolver(0);
+        first.fulfill("A");
+        first.reject(new Exception());
+        group.resolver(1).fulfill("B");
+        assertEquals("[A, B]", group.all().sync().getResult().toString());
+    }
+}
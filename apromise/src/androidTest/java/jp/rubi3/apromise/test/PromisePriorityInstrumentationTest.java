@@ -0,0 +1,185 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.rubi3.apromise.Callback;
+import jp.rubi3.apromise.Filter;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PromisePriorityInstrumentationTest {
+    private HandlerThread thread;
+    private Handler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        thread = new HandlerThread("testPriority");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        thread.quit();
+    }
+
+    private static Callback<String> add(final List<String> order, final String name, final CountDownLatch latch) {
+        return new Callback<String>() {
+            @Override
+            public void callback(@Nullable String result) throws Exception {
+                order.add(name);
+                latch.countDown();
+            }
+        };
+    }
+
+    private static Runnable add(final List<String> order, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(4);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handler.post(add(order, "normal"));
+                Promise.resolve("").withPriority(Promise.PRIORITY_IDLE).thenCallback(add(order, "idle", latch));
+                Promise.resolve("").thenCallback(add(order, "promise", latch));
+                Promise.resolve("").withPriority(Promise.PRIORITY_IMMEDIATE).thenCallback(add(order, "immediate", latch));
+                handler.post(add(order, "after"));
+                Promise.resolve("").withPriority(Promise.PRIORITY_IMMEDIATE).thenFilter(new Filter<String, String>() {
+                    @Override
+                    public String filter(@Nullable String result) throws Exception {
+                        return result;
+                    }
+                }).thenCallback(add(order, "inherited", latch));
+            }
+        });
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("immediate", "inherited", "normal", "promise", "after", "idle"), order);
+    }
+
+    @Test
+    public void testImmediate() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicReference<Resolver<String>> resolver = new AtomicReference<>();
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                Promise<String> promise = new Promise<>(new Function<String>() {
+                    @Override
+                    public void function(@NonNull Resolver<String> r) throws Exception {
+                        resolver.set(r);
+                    }
+                }).withPriority(Promise.PRIORITY_IMMEDIATE);
+                promise.thenCallback(add(order, "first", latch));
+                promise.thenCallback(add(order, "second", latch));
+                promise.thenFilter(new Filter<String, String>() {
+                    @Override
+                    public String filter(@Nullable String result) throws Exception {
+                        return result;
+                    }
+                }).thenCallback(add(order, "inherited", latch));
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        handler.post(add(order, "normal"));
+                        resolver.get().fulfill("");
+                    }
+                });
+            }
+        });
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        // continuations jump ahead of queued messages, and keep the order they were added in
+        assertEquals(Arrays.asList("first", "second", "inherited"), order.subList(0, 3));
+        SystemClock.sleep(50);
+        assertEquals("normal", order.get(3));
+    }
+
+    @Test
+    public void testIdleStages() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicReference<Resolver<String>> resolver = new AtomicReference<>();
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                new Promise<>(new Function<String>() {
+                    @Override
+                    public void function(@NonNull Resolver<String> r) throws Exception {
+                        resolver.set(r);
+                    }
+                }).withPriority(Promise.PRIORITY_IDLE)
+                        .thenCallback(add(order, "a", latch))
+                        .thenCallback(add(order, "b", latch))
+                        .thenCallback(add(order, "c", latch));
+                resolver.get().fulfill("");
+            }
+        });
+        // nothing else is posted to the thread, so each stage has to wake the looper for the next one
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a", "b", "c"), order);
+    }
+
+    @Test
+    public void testBackground() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 3; i++) {
+                    Promise.resolve("").withPriority(Promise.PRIORITY_BACKGROUND).thenCallback(add(order, "background" + i, latch));
+                }
+                handler.post(add(order, "normal"));
+            }
+        });
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("background0", "normal", "background1", "background2"), order);
+    }
+
+    @Test
+    public void testInherit() throws Exception {
+        Promise<String> promise = Promise.resolve("OK").withPriority(Promise.PRIORITY_BACKGROUND);
+        Promise<String> stage = promise.thenFilter(new Filter<String, String>() {
+            @Override
+            public String filter(@Nullable String result) throws Exception {
+                return result;
+            }
+        });
+        assertEquals(Promise.PRIORITY_BACKGROUND, stage.getPriority());
+        assertEquals(Promise.PRIORITY_NORMAL, Promise.resolve("OK").getPriority());
+        assertEquals("OK", stage.sync().getResult());
+    }
+}
@@ -0,0 +1,93 @@
+package jp.rubi3.apromise.test;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jp.rubi3.apromise.Filter;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.PromiseRegistry;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PromiseRegistryInstrumentationTest {
+    private static Promise<String> never() {
+        return new Promise<>(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+            }
+        });
+    }
+
+    private static Filter<String, String> identity() {
+        return new Filter<String, String>() {
+            @Override
+            public String filter(@Nullable String result) throws Exception {
+                return result;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        PromiseRegistry.disable();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertFalse(PromiseRegistry.isEnabled());
+        never().thenFilter(identity());
+        assertTrue(PromiseRegistry.getPending().isEmpty());
+    }
+
+    @Test
+    public void testPending() throws Exception {
+        PromiseRegistry.enable(1, 0);
+        Promise<String> first = never();
+        first.thenFilter(identity());
+        Promise<String> other = never();
+        Promise.all(Arrays.asList(first, other));
+        Promise.resolve("OK").thenFilter(identity()).sync();
+
+        List<PromiseRegistry.Pending> pending = PromiseRegistry.getPending();
+        assertEquals(4, pending.size());
+        PromiseRegistry.Pending root = null;
+        for (PromiseRegistry.Pending one : pending) {
+            if (one.getDependents().size() == 2) {
+                root = one;
+            }
+        }
+        assertNotNull(root);
+        assertTrue(root.getCreationSite(), root.getCreationSite().contains(getClass().getName() + ".never"));
+        assertEquals(4, PromiseRegistry.getLeaks().size());
+        assertEquals(4, PromiseRegistry.logLeaks());
+
+        String dot = PromiseRegistry.dumpDot();
+        assertTrue(dot, dot.startsWith("digraph promises {"));
+        assertTrue(dot, dot.contains("p" + root.getId() + " -> p" + root.getDependents().get(0) + ";"));
+        assertEquals(4, PromiseRegistry.dump().split("\n").length);
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        PromiseRegistry.enable(1000000, 60000);
+        for (int i = 0; i < 100; i++) {
+            never().thenFilter(identity());
+        }
+        assertTrue(PromiseRegistry.getPending().size() <= 2);
+        assertTrue(PromiseRegistry.getLeaks().isEmpty());
+    }
+}
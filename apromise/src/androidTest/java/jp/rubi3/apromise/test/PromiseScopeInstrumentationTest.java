@@ -0,0 +1,161 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.rubi3.apromise.Callback;
+import jp.rubi3.apromise.CallbackNonNull;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.PromiseScope;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PromiseScopeInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static Function<String> never() {
+        return new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+            }
+        };
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        PromiseScope scope = new PromiseScope();
+        Promise<String> pending = scope.launch(never());
+        final AtomicBoolean called = new AtomicBoolean();
+        Promise<String> stage = pending.thenCallback(new Callback<String>() {
+            @Override
+            public void callback(String result) throws Exception {
+                called.set(true);
+            }
+        }, new CallbackNonNull<Exception>() {
+            @Override
+            public void callback(@NonNull Exception result) throws Exception {
+                called.set(true);
+            }
+        });
+        Promise<String> fulfilled = scope.add(Promise.resolve("OK"));
+        assertEquals("OK", fulfilled.sync().getResult());
+        assertEquals(1, scope.size());
+
+        scope.close();
+        assertTrue(scope.isClosed());
+        assertEquals(0, scope.size());
+        assertTrue(getException(pending.sync()) instanceof CancellationException);
+        Promise.resolve(null).sync();
+        assertFalse(called.get());
+
+        // stages chained from cancelled children are cancelled, not left pending
+        assertTrue(getException(stage.sync()) instanceof CancellationException);
+        assertTrue(getException(stage.thenCallback(null).sync()) instanceof CancellationException);
+        assertTrue(getException(Promise.all(Arrays.asList(pending, stage)).sync()) instanceof CancellationException);
+        assertFalse(called.get());
+
+        assertTrue(getException(scope.launch(never()).sync()) instanceof CancellationException);
+        assertTrue(getException(scope.add(new Promise<>(never())).sync()) instanceof CancellationException);
+    }
+
+    @Test
+    public void testJoin() throws Exception {
+        PromiseScope scope = new PromiseScope();
+        assertTrue(scope.join().sync().isFulfilled());
+
+        final HandlerThread thread = new HandlerThread("testJoin");
+        thread.start();
+        scope.launch(new Function<String>() {
+            @Override
+            public void function(@NonNull final Resolver<String> resolver) throws Exception {
+                new Handler(thread.getLooper()).postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        resolver.fulfill("OK");
+                    }
+                }, 50);
+            }
+        });
+        Promise<Void> joined = scope.join();
+        assertTrue(joined.isPending());
+        assertTrue(joined.sync().isFulfilled());
+        assertEquals(0, scope.size());
+        thread.quit();
+
+        scope.launch(never());
+        joined = scope.join();
+        scope.close();
+        assertTrue(joined.sync().isFulfilled());
+    }
+
+    @Test
+    public void testLazy() throws Exception {
+        PromiseScope scope = new PromiseScope();
+        final AtomicInteger called = new AtomicInteger();
+        Promise<String> lazy = scope.add(Promise.lazy(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> resolver) throws Exception {
+                called.incrementAndGet();
+                resolver.fulfill("OK");
+            }
+        }));
+        Promise.resolve(null).sync();
+        assertEquals(0, called.get());
+        assertEquals(1, scope.size());
+
+        assertEquals("OK", lazy.sync().getResult());
+        assertEquals(1, called.get());
+        assertTrue(scope.join().sync().isFulfilled());
+        assertEquals(0, scope.size());
+    }
+
+    @Test
+    public void testConcurrentSettle() throws Exception {
+        final PromiseScope scope = new PromiseScope();
+        HandlerThread thread = new HandlerThread("testConcurrentSettle");
+        thread.start();
+        for (int i = 0; i < 200; i++) {
+            // settled on the promise's own looper while added from this thread
+            scope.add(new Promise<>(thread.getLooper(), new Function<String>() {
+                @Override
+                public void function(@NonNull Resolver<String> resolver) throws Exception {
+                    resolver.fulfill("OK");
+                }
+            }));
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        scope.join().thenCallback(new Callback<Void>() {
+            @Override
+            public void callback(Void result) throws Exception {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, scope.size());
+        thread.quit();
+    }
+}
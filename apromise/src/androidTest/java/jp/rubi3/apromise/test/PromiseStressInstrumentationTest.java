@@ -0,0 +1,263 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.rubi3.apromise.Callback;
+import jp.rubi3.apromise.CallbackNonNull;
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * races settling against chaining, all() and sync() across threads.
+ * each round asserts that every continuation is called exactly once with the one settled outcome.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PromiseStressInstrumentationTest {
+    private static final int ROUNDS = 200;
+    private static final int THREADS = 4;
+
+    private final List<HandlerThread> loopers = new ArrayList<>();
+    private final List<Handler> handlers = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < THREADS; i++) {
+            HandlerThread thread = new HandlerThread("stress-" + i);
+            thread.start();
+            loopers.add(thread);
+            handlers.add(new Handler(thread.getLooper()));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (HandlerThread thread : loopers) {
+            thread.quit();
+        }
+    }
+
+    private static void race(int threads, final Runnable... runnables) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> started = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final Runnable runnable = runnables[i % runnables.length];
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        runnable.run();
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    private Promise<Integer> pending(int looper, final AtomicReference<Resolver<Integer>> resolver) throws Exception {
+        final CountDownLatch created = new CountDownLatch(1);
+        final AtomicReference<Promise<Integer>> promise = new AtomicReference<>();
+        handlers.get(looper).post(new Runnable() {
+            @Override
+            public void run() {
+                promise.set(new Promise<>(new Function<Integer>() {
+                    @Override
+                    public void function(@NonNull Resolver<Integer> one) throws Exception {
+                        resolver.set(one);
+                    }
+                }));
+                created.countDown();
+            }
+        });
+        assertTrue(created.await(1, TimeUnit.SECONDS));
+        return promise.get();
+    }
+
+    @Test
+    public void testSettleRacesChain() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final AtomicReference<Resolver<Integer>> resolver = new AtomicReference<>();
+            final Promise<Integer> promise = pending(round % THREADS, resolver);
+            final int chains = 3;
+            final CountDownLatch called = new CountDownLatch((THREADS - 2) * chains);
+            final AtomicInteger fulfilled = new AtomicInteger();
+            final AtomicInteger rejected = new AtomicInteger();
+            Runnable chain = new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < chains; i++) {
+                        promise.thenCallback(new Callback<Integer>() {
+                            @Override
+                            public void callback(@Nullable Integer result) throws Exception {
+                                fulfilled.incrementAndGet();
+                                called.countDown();
+                            }
+                        }, new CallbackNonNull<Exception>() {
+                            @Override
+                            public void callback(@NonNull Exception result) throws Exception {
+                                rejected.incrementAndGet();
+                                called.countDown();
+                            }
+                        });
+                    }
+                }
+            };
+            race(THREADS, new Runnable() {
+                @Override
+                public void run() {
+                    resolver.get().fulfill(1);
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    resolver.get().reject(new Exception());
+                }
+            }, chain, chain);
+            assertTrue(called.await(1, TimeUnit.SECONDS));
+            Thread.sleep(1);
+            int total = (THREADS - 2) * chains;
+            assertEquals(total, fulfilled.get() + rejected.get());
+            assertTrue(fulfilled.get() == total || rejected.get() == total);
+            assertEquals(promise.isFulfilled(), fulfilled.get() == total);
+        }
+    }
+
+    @Test
+    public void testAllAcrossLoopers() throws Exception {
+        final Random random = new Random(0);
+        for (int round = 0; round < ROUNDS / 4; round++) {
+            int size = 16;
+            List<Promise<Integer>> promises = new ArrayList<>(size);
+            final List<Resolver<Integer>> resolvers = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                AtomicReference<Resolver<Integer>> resolver = new AtomicReference<>();
+                promises.add(pending(i % THREADS, resolver));
+                resolvers.add(resolver.get());
+            }
+            Promise<List<Integer>> all = Promise.all(promises);
+            final AtomicInteger next = new AtomicInteger(size);
+            final int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            race(THREADS, new Runnable() {
+                @Override
+                public void run() {
+                    int i;
+                    while ((i = next.decrementAndGet()) >= 0) {
+                        resolvers.get(order[i]).fulfill(order[i]);
+                    }
+                }
+            });
+            List<Integer> result = all.sync().getResult();
+            assertEquals(size, result.size());
+            for (int i = 0; i < size; i++) {
+                assertEquals(Integer.valueOf(i), result.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testPipeRacesSettle() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final AtomicReference<Resolver<Integer>> first = new AtomicReference<>();
+            final AtomicReference<Resolver<Integer>> second = new AtomicReference<>();
+            Promise<Integer> source = pending(round % THREADS, first);
+            final Promise<Integer> piped = pending((round + 1) % THREADS, second);
+            final AtomicInteger called = new AtomicInteger();
+            Promise<Integer> result = source.thenPipe(new Pipe<Integer, Integer>() {
+                @Nullable
+                @Override
+                public Promise<Integer> pipe(@Nullable Integer result) throws Exception {
+                    return piped;
+                }
+            }).thenCallback(new Callback<Integer>() {
+                @Override
+                public void callback(@Nullable Integer result) throws Exception {
+                    called.incrementAndGet();
+                }
+            });
+            race(2, new Runnable() {
+                @Override
+                public void run() {
+                    first.get().fulfill(1);
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    second.get().fulfill(2);
+                }
+            });
+            assertEquals(Integer.valueOf(2), result.sync().getResult());
+            Thread.sleep(1);
+            assertEquals(1, called.get());
+        }
+    }
+
+    @Test
+    public void testSyncWaiters() throws Exception {
+        for (int round = 0; round < ROUNDS / 4; round++) {
+            final AtomicReference<Resolver<Integer>> resolver = new AtomicReference<>();
+            final Promise<Integer> promise = pending(round % THREADS, resolver);
+            final AtomicInteger woken = new AtomicInteger();
+            Runnable waiter = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (Integer.valueOf(1).equals(promise.sync().getResult())) {
+                            woken.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            };
+            race(THREADS, new Runnable() {
+                @Override
+                public void run() {
+                    resolver.get().fulfill(1);
+                }
+            }, waiter, waiter, waiter);
+            assertEquals(THREADS - 1, woken.get());
+        }
+    }
+}
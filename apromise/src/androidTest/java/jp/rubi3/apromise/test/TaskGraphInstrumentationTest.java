@@ -0,0 +1,139 @@
+package jp.rubi3.apromise.test;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.Pipe;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+import jp.rubi3.apromise.TaskGraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class TaskGraphInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static Pipe<Map<String, Object>, Object> delayed(final String value, final long delayMillis) {
+        return new Pipe<Map<String, Object>, Object>() {
+            @Nullable
+            @Override
+            public Promise<Object> pipe(@Nullable final Map<String, Object> result) throws Exception {
+                final HandlerThread thread = new HandlerThread(value);
+                thread.start();
+                return new Promise<>(new Function<Object>() {
+                    @Override
+                    public void function(@NonNull final Resolver<Object> resolver) throws Exception {
+                        new Handler(thread.getLooper()).postDelayed(new Runnable() {
+                            @Override
+                            public void run() {
+                                StringBuilder builder = new StringBuilder();
+                                //noinspection ConstantConditions
+                                for (String key : new TreeSet<>(result.keySet())) {
+                                    builder.append(result.get(key));
+                                }
+                                resolver.fulfill(builder.append(value).toString());
+                                thread.quit();
+                            }
+                        }, delayMillis);
+                    }
+                });
+            }
+        };
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        TaskGraph graph = new TaskGraph()
+                .add("d", delayed("d", 10), "b", "c")
+                .add("a", delayed("a", 10))
+                .add("b", delayed("b", 100), "a")
+                .add("c", delayed("c", 100), "a");
+        assertEquals("a", graph.validate().get(0));
+        TaskGraph.Result result = graph.execute().sync().getResult();
+        assertEquals("abacd", result.get("d"));
+        assertTrue(result.getTotalMillis() < 200);
+        assertTrue(result.getStartMillis("b") < result.getEndMillis("c"));
+        assertTrue(result.getStartMillis("d") >= result.getEndMillis("b"));
+        assertTrue(result.getDurationMillis("b") >= 100);
+        assertEquals("a", result.getCriticalPath().get(0));
+        assertEquals("d", result.getCriticalPath().get(2));
+        assertEquals(3, result.getCriticalPath().size());
+    }
+
+    @Test
+    public void testCycle() throws Exception {
+        TaskGraph graph = new TaskGraph()
+                .add("a", delayed("a", 0))
+                .add("b", delayed("b", 0), "a", "d")
+                .add("c", delayed("c", 0), "b")
+                .add("d", delayed("d", 0), "c");
+        try {
+            graph.execute();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("b -> c -> d -> b")
+                    || e.getMessage().contains("c -> d -> b -> c")
+                    || e.getMessage().contains("d -> b -> c -> d"));
+        }
+        try {
+            new TaskGraph().add("a", delayed("a", 0), "x").validate();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("x"));
+        }
+    }
+
+    @Test
+    public void testReject() throws Exception {
+        final Exception exception = new Exception();
+        final boolean[] called = new boolean[1];
+        Promise<TaskGraph.Result> promise = new TaskGraph()
+                .add("a", new Pipe<Map<String, Object>, Object>() {
+                    @Nullable
+                    @Override
+                    public Promise<Object> pipe(@Nullable Map<String, Object> result) throws Exception {
+                        throw exception;
+                    }
+                })
+                .add("b", new Pipe<Map<String, Object>, Object>() {
+                    @Nullable
+                    @Override
+                    public Promise<Object> pipe(@Nullable Map<String, Object> result) throws Exception {
+                        called[0] = true;
+                        return null;
+                    }
+                }, "a")
+                .execute().sync();
+        assertEquals(exception, getException(promise));
+        assertFalse(called[0]);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        TaskGraph.Result result = new TaskGraph().execute().sync().getResult();
+        assertTrue(result.getResults().isEmpty());
+        assertEquals(Arrays.asList(), result.getCriticalPath());
+    }
+}
@@ -0,0 +1,140 @@
+package jp.rubi3.apromise.test;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.rubi3.apromise.Function;
+import jp.rubi3.apromise.OwnerCallback;
+import jp.rubi3.apromise.Promise;
+import jp.rubi3.apromise.Resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class WeakCallbackInstrumentationTest {
+    private Exception getException(Promise promise) {
+        try {
+            promise.getResult();
+            throw new IllegalStateException("Fulfilled promise.");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static Promise<String> pending(final AtomicReference<Resolver<String>> resolver) throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        Promise<String> promise = new Promise<>(new Function<String>() {
+            @Override
+            public void function(@NonNull Resolver<String> r) throws Exception {
+                resolver.set(r);
+                started.countDown();
+            }
+        });
+        started.await();
+        return promise;
+    }
+
+    private static OwnerCallback<Object, String> record(final AtomicBoolean called) {
+        return new OwnerCallback<Object, String>() {
+            @Override
+            public void callback(@NonNull Object owner, String result) throws Exception {
+                called.set(true);
+            }
+        };
+    }
+
+    private static void collect(WeakReference<?> reference) {
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            SystemClock.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void testCallbackWithOwner() throws Exception {
+        final Object owner = new Object();
+        final AtomicReference<Object> received = new AtomicReference<>();
+        Promise<String> promise = Promise.resolve("OK").thenCallbackWeak(owner, new OwnerCallback<Object, String>() {
+            @Override
+            public void callback(@NonNull Object o, String result) throws Exception {
+                received.set(o);
+            }
+        });
+        assertEquals("OK", promise.sync().getResult());
+        assertSame(owner, received.get());
+    }
+
+    @Test
+    public void testRejectedWithOwner() throws Exception {
+        Object owner = new Object();
+        final AtomicReference<Exception> received = new AtomicReference<>();
+        Exception exception = new Exception("NG");
+        Promise<String> promise = Promise.reject(exception, String.class).thenCallbackWeak(owner, null,
+                new OwnerCallback<Object, Exception>() {
+                    @Override
+                    public void callback(@NonNull Object o, Exception result) throws Exception {
+                        received.set(result);
+                    }
+                });
+        assertSame(exception, getException(promise.sync()));
+        assertSame(exception, received.get());
+    }
+
+    @Test
+    public void testPrunedWhenOwnerCollected() throws Exception {
+        AtomicReference<Resolver<String>> resolver = new AtomicReference<>();
+        Promise<String> source = pending(resolver);
+        AtomicBoolean called = new AtomicBoolean();
+        Object owner = new Object();
+        WeakReference<Object> reference = new WeakReference<>(owner);
+        Promise<String> promise = source.thenCallbackWeak(owner, record(called));
+        owner = null;
+        collect(reference);
+
+        // downstream is cancelled without the source being settled
+        promise.sync();
+        assertTrue(getException(promise) instanceof CancellationException);
+        assertTrue(source.isPending());
+
+        resolver.get().fulfill("OK");
+        assertEquals("OK", source.thenCallback(null).sync().getResult());
+        assertFalse(called.get());
+    }
+
+    @Test
+    public void testOwnerStillReachable() throws Exception {
+        AtomicReference<Resolver<String>> resolver = new AtomicReference<>();
+        Promise<String> source = pending(resolver);
+        final AtomicReference<Object> received = new AtomicReference<>();
+        Object owner = new Object();
+        Promise<String> promise = source.thenCallbackWeak(owner, new OwnerCallback<Object, String>() {
+            @Override
+            public void callback(@NonNull Object o, String result) throws Exception {
+                received.set(o);
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            SystemClock.sleep(10);
+        }
+        assertTrue(promise.isPending());
+        resolver.get().fulfill("OK");
+        assertEquals("OK", promise.sync().getResult());
+        assertSame(owner, received.get());
+    }
+}
@@ -0,0 +1,22 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.Nullable;
+
+/**
+ *
+ * Accumulator
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public interface Accumulator<N, D> {
+    /**
+     * accumulate
+     *
+     * @param accumulated result so far
+     * @param result next result
+     * @return next accumulated result
+     * @throws Exception to reject
+     */
+    @Nullable
+    N accumulate(@Nullable N accumulated, @Nullable D result) throws Exception;
+}
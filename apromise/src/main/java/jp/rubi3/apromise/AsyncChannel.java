@@ -0,0 +1,156 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * AsyncChannel
+ *
+ * Bounded channel. send() stays pending while the buffer is full, and receive() stays pending while it is empty.
+ *
+ * Calls are queued in lock-free queues and applied by whichever thread wins the drain counter,
+ * so the ring buffer is only touched by one thread at a time without locking.
+ *
+ * After close(), send() is rejected with ClosedChannelException, and receive() is rejected once the buffer is empty.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class AsyncChannel<T> {
+    private final Object[] ring;
+    private final Queue<Sender<T>> senders = new ConcurrentLinkedQueue<>();
+    private final Queue<Promise<T>> receivers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean closed;
+    // ring is guarded by wip
+    private int head;
+    private int size;
+
+    public AsyncChannel(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity should be greater than 0.");
+        }
+        this.ring = new Object[capacity];
+    }
+
+    /**
+     * send item.
+     *
+     * @param item item to send
+     * @return returns promise fulfilled when item is buffered
+     */
+    @NonNull
+    public Promise<Void> send(@NonNull T item) {
+        Promise.assertNonNull("item should not be null.", item);
+        Promise<Void> promise = new Promise<>(Promise.getLooper());
+        if (closed) {
+            return promise.doReject(new ClosedChannelException());
+        }
+        senders.offer(new Sender<>(item, promise));
+        drain();
+        return promise;
+    }
+
+    /**
+     * receive item.
+     *
+     * @return returns promise fulfilled with the next item
+     */
+    @NonNull
+    public Promise<T> receive() {
+        Promise<T> promise = new Promise<>(Promise.getLooper());
+        receivers.offer(promise);
+        drain();
+        return promise;
+    }
+
+    public void close() {
+        closed = true;
+        drain();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            boolean progress = true;
+            while (progress) {
+                progress = fill() | deliver();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private boolean fill() {
+        boolean progress = false;
+        Sender<T> sender;
+        while ((sender = senders.peek()) != null) {
+            if (!closed && size == ring.length) {
+                break;
+            }
+            senders.poll();
+            progress = true;
+            synchronized (sender.promise) {
+                if (!sender.promise.isPending()) {
+                    continue;
+                }
+                if (closed) {
+                    sender.promise.doReject(new ClosedChannelException());
+                    continue;
+                }
+                ring[(head + size) % ring.length] = sender.item;
+                size++;
+                sender.promise.doFulfill(null);
+            }
+        }
+        return progress;
+    }
+
+    private boolean deliver() {
+        boolean progress = false;
+        Promise<T> receiver;
+        while ((receiver = receivers.peek()) != null) {
+            if (size == 0 && !(closed && senders.isEmpty())) {
+                break;
+            }
+            receivers.poll();
+            progress = true;
+            synchronized (receiver) {
+                if (!receiver.isPending()) {
+                    continue;
+                }
+                if (size == 0) {
+                    receiver.doReject(new ClosedChannelException());
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                T item = (T) ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+                receiver.doFulfill(item);
+            }
+        }
+        return progress;
+    }
+
+    private static final class Sender<T> {
+        final T item;
+        final Promise<Void> promise;
+
+        Sender(T item, Promise<Void> promise) {
+            this.item = item;
+            this.promise = promise;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * AsyncExecutor
+ *
+ * Executor of Promise.async. A virtual thread per task where the runtime has them (JDK 21+),
+ * found by reflection as this library is built for Java 7. Otherwise a bounded pool of daemon threads,
+ * and tasks beyond it wait in a queue. callers with many blocking tasks may pass their own executor instead.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+final class AsyncExecutor {
+    private static final String TAG = "APromise-async";
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final ExecutorService EXECUTOR;
+
+    static {
+        ExecutorService executor = null;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            // NoSuchMethodException before JDK 21 and on Android
+        }
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, TAG + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        EXECUTOR = executor;
+    }
+
+    private AsyncExecutor() {
+    }
+
+    static void execute(@Nullable Executor executor, @NonNull Runnable runnable) {
+        (executor != null ? executor : EXECUTOR).execute(PromiseContext.wrap(runnable));
+    }
+}
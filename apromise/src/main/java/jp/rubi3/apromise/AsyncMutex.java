@@ -0,0 +1,34 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+
+/**
+ *
+ * AsyncMutex
+ *
+ * Mutex which never blocks. lock() returns a promise fulfilled with a Permit, and Permit.release() unlocks.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class AsyncMutex {
+    private final AsyncSemaphore semaphore = new AsyncSemaphore(1);
+
+    public boolean isLocked() {
+        return semaphore.availablePermits() == 0;
+    }
+
+    @NonNull
+    public Promise<Permit> lock() {
+        return semaphore.acquire();
+    }
+
+    /**
+     * wrap pipe to hold the lock while piped promise is pending.
+     *
+     * @see AsyncSemaphore#withPermit(Pipe)
+     */
+    @NonNull
+    public <D, N> Pipe<D, N> withLock(@NonNull Pipe<D, N> pipe) {
+        return semaphore.withPermit(pipe);
+    }
+}
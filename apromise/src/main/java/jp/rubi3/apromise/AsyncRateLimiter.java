@@ -0,0 +1,106 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * AsyncRateLimiter
+ *
+ * Token bucket which never blocks. Each acquire reserves its tokens with one compare-and-set,
+ * so reservations are served in call order, and waiting promises are fulfilled by the shared timer.
+ *
+ * Tokens reserved by a cancelled acquire are not returned.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class AsyncRateLimiter {
+    private final long intervalNanos;
+    private final long burstNanos;
+    // time when the bucket becomes empty. the bucket is full while this is burstNanos or more before now.
+    private final AtomicLong emptyAt;
+
+    /**
+     * create rate limiter with full bucket.
+     *
+     * @param permitsPerSecond refill rate
+     * @param burst bucket capacity
+     */
+    public AsyncRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond should be greater than 0.");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst should be greater than 0.");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.emptyAt = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    @NonNull
+    public Promise<Void> acquire() {
+        return acquire(1);
+    }
+
+    /**
+     * acquire permits.
+     *
+     * @param permits number of tokens to take
+     * @return returns promise fulfilled when tokens are available
+     */
+    @NonNull
+    public Promise<Void> acquire(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits should be greater than 0.");
+        }
+        long now = System.nanoTime();
+        long readyAt;
+        while (true) {
+            long current = emptyAt.get();
+            readyAt = Math.max(current, now - burstNanos) + permits * intervalNanos;
+            if (emptyAt.compareAndSet(current, readyAt)) {
+                break;
+            }
+        }
+        final Promise<Void> promise = new Promise<>(Promise.getLooper());
+        long waitNanos = readyAt - now;
+        if (waitNanos <= 0) {
+            return promise.doFulfill(null);
+        }
+        SharedTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                promise.doFulfill(null);
+            }
+        }, TimeUnit.NANOSECONDS.toMillis(waitNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+        return promise;
+    }
+
+    /**
+     * wrap pipe to acquire one permit before each call.
+     *
+     * @param pipe pipe to limit
+     * @return returns limited pipe
+     */
+    @NonNull
+    public <D, N> Pipe<D, N> limit(@NonNull final Pipe<D, N> pipe) {
+        Promise.assertNonNull("Pipe should not be null.", pipe);
+        return new Pipe<D, N>() {
+            @Nullable
+            @Override
+            public Promise<N> pipe(@Nullable final D result) throws Exception {
+                return acquire().thenPipe(new Pipe<Void, N>() {
+                    @Nullable
+                    @Override
+                    public Promise<N> pipe(@Nullable Void ignored) throws Exception {
+                        return pipe.pipe(result);
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * AsyncSemaphore
+ *
+ * Semaphore which never blocks. acquire() returns a promise fulfilled with a Permit.
+ * Waiters are queued in a lock-free FIFO, and resumed on their own promise's looper.
+ * A cancelled waiter is skipped when its turn comes.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class AsyncSemaphore {
+    private final AtomicInteger permits;
+    private final Queue<Promise<Permit>> waiters = new ConcurrentLinkedQueue<>();
+
+    public AsyncSemaphore(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits should be greater than 0.");
+        }
+        this.permits = new AtomicInteger(permits);
+    }
+
+    public int availablePermits() {
+        return permits.get();
+    }
+
+    /**
+     * acquire permit.
+     *
+     * @return returns promise fulfilled with permit when available
+     */
+    @NonNull
+    public Promise<Permit> acquire() {
+        Promise<Permit> promise = new Promise<>(Promise.getLooper());
+        if (waiters.isEmpty() && take()) {
+            return promise.doFulfill(new Permit(this));
+        }
+        waiters.offer(promise);
+        drain();
+        return promise;
+    }
+
+    /**
+     * wrap pipe to hold a permit while piped promise is pending.
+     *
+     * @param pipe pipe to call with permit
+     * @return returns pipe which acquires permit before calling pipe, and releases it when piped promise settles
+     */
+    @NonNull
+    public <D, N> Pipe<D, N> withPermit(@NonNull final Pipe<D, N> pipe) {
+        Promise.assertNonNull("Pipe should not be null.", pipe);
+        return new Pipe<D, N>() {
+            @Nullable
+            @Override
+            public Promise<N> pipe(@Nullable final D result) throws Exception {
+                return acquire().thenPipe(new Pipe<Permit, N>() {
+                    @Nullable
+                    @Override
+                    public Promise<N> pipe(@Nullable final Permit permit) throws Exception {
+                        //noinspection ConstantConditions
+                        return pipeWith(permit, pipe, result);
+                    }
+                });
+            }
+        };
+    }
+
+    private <D, N> Promise<N> pipeWith(@NonNull final Permit permit, @NonNull Pipe<D, N> pipe, D result) throws Exception {
+        Promise<N> piped;
+        try {
+            piped = pipe.pipe(result);
+        } catch (Exception e) {
+            permit.release();
+            throw e;
+        }
+        if (piped == null) {
+            permit.release();
+            return null;
+        }
+        return piped.chain(new Promise.Chain<N>() {
+            @Override
+            public void chain(Promise<N> from) {
+                permit.release();
+            }
+        });
+    }
+
+    void release() {
+        permits.incrementAndGet();
+        drain();
+    }
+
+    private boolean take() {
+        while (true) {
+            int available = permits.get();
+            if (available <= 0) {
+                return false;
+            }
+            if (permits.compareAndSet(available, available - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void drain() {
+        while (!waiters.isEmpty() && take()) {
+            Promise<Permit> waiter = waiters.poll();
+            boolean delivered = false;
+            if (waiter != null) {
+                synchronized (waiter) {
+                    if (waiter.isPending()) {
+                        waiter.doFulfill(new Permit(this));
+                        delivered = true;
+                    }
+                }
+            }
+            if (!delivered) {
+                permits.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package jp.rubi3.apromise;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * AsyncStackTrace
+ *
+ * Opt-in creation sites of promises. While enabled, every sampleInterval-th promise records where it was created,
+ * together with then*, catch* and finally* stages chained from it. When such a promise is rejected, the site is
+ * attached to the exception as suppressed exception, or as cause before API 19.
+ *
+ * Recording only fills in the VM backtrace. Stack frames are built and trimmed to frames outside of this library
+ * when a site is attached, so settled promises cost nothing more. While disabled, promises only read one volatile flag.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class AsyncStackTrace extends Throwable {
+    private static final String PACKAGE = AsyncStackTrace.class.getPackage().getName() + ".";
+    private static final AtomicLong COUNT = new AtomicLong();
+
+    static volatile boolean enabled;
+    private static volatile int sampleInterval = 1;
+    private static volatile int maxFrames = 32;
+
+    private boolean trimmed;
+
+    private AsyncStackTrace() {
+        super("Promise created");
+    }
+
+    /**
+     * start recording creation sites.
+     *
+     * @param sampleInterval record one of every sampleInterval promises and stages chained from them
+     * @param maxFrames maximum number of frames kept in each site
+     */
+    public static void enable(int sampleInterval, int maxFrames) {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("sampleInterval should be greater than 0.");
+        }
+        if (maxFrames <= 0) {
+            throw new IllegalArgumentException("maxFrames should be greater than 0.");
+        }
+        AsyncStackTrace.sampleInterval = sampleInterval;
+        AsyncStackTrace.maxFrames = maxFrames;
+        enabled = true;
+    }
+
+    /**
+     * stop recording. sites already recorded are still attached.
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param chained true if promise is chained from a recorded promise
+     * @return returns site, or null if not sampled
+     */
+    static AsyncStackTrace capture(boolean chained) {
+        if (!chained && COUNT.getAndIncrement() % sampleInterval != 0) {
+            return null;
+        }
+        return new AsyncStackTrace();
+    }
+
+    static void attach(AsyncStackTrace site, Exception exception) {
+        if (site == null || exception == null) {
+            return;
+        }
+        site.trim();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            addSuppressed(site, exception);
+            return;
+        }
+        if (exception.getCause() != null) {
+            return;
+        }
+        try {
+            exception.initCause(site);
+        } catch (IllegalStateException e) {
+            // cause was given to the constructor as null
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static void addSuppressed(AsyncStackTrace site, Exception exception) {
+        // an exception rejected again by following stages keeps the innermost site only
+        for (Throwable suppressed : exception.getSuppressed()) {
+            if (suppressed instanceof AsyncStackTrace) {
+                return;
+            }
+        }
+        exception.addSuppressed(site);
+    }
+
+    private synchronized void trim() {
+        if (trimmed) {
+            return;
+        }
+        trimmed = true;
+        StackTraceElement[] elements = getStackTrace();
+        int start = 0;
+        while (start < elements.length && isInternal(elements[start])) {
+            start++;
+        }
+        if (start == elements.length) {
+            start = 0;
+        }
+        List<StackTraceElement> frames = new ArrayList<>();
+        for (int i = start; i < elements.length && frames.size() < maxFrames; i++) {
+            frames.add(elements[i]);
+        }
+        setStackTrace(frames.toArray(new StackTraceElement[frames.size()]));
+    }
+
+    private static boolean isInternal(StackTraceElement element) {
+        String name = element.getClassName();
+        return name.startsWith(PACKAGE) && name.indexOf('.', PACKAGE.length()) < 0;
+    }
+}
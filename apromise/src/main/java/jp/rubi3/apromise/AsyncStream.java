@@ -0,0 +1,517 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ *
+ * AsyncStream
+ *
+ * Stream of results pulled on demand. Nothing is produced until request(n) is called,
+ * and at most n results are produced per request.
+ *
+ * Operators return new streams which pull from this one. A stream has one consumer.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public abstract class AsyncStream<T> {
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * request results.
+     *
+     * must not be called again until the returned promise settles.
+     *
+     * @param n maximum number of results
+     * @return returns promise fulfilled with 1 to n results, or with null if the stream is completed
+     */
+    @NonNull
+    public abstract Promise<List<T>> request(int n);
+
+    /**
+     * create stream of iterable.
+     */
+    @NonNull
+    public static <T> AsyncStream<T> fromIterable(@NonNull final Iterable<T> iterable) {
+        Promise.assertNonNull("iterable should not be null.", iterable);
+        return new AsyncStream<T>() {
+            private Iterator<T> iterator;
+
+            @NonNull
+            @Override
+            public Promise<List<T>> request(int n) {
+                if (n <= 0) {
+                    throw new IllegalArgumentException("n should be greater than 0.");
+                }
+                if (iterator == null) {
+                    iterator = iterable.iterator();
+                }
+                if (!iterator.hasNext()) {
+                    return Promise.resolve(null);
+                }
+                List<T> results = new ArrayList<>(Math.min(n, BATCH_SIZE));
+                while (results.size() < n && iterator.hasNext()) {
+                    results.add(iterator.next());
+                }
+                return Promise.resolve(results);
+            }
+        };
+    }
+
+    /**
+     * create stream of single result of promise.
+     */
+    @NonNull
+    public static <T> AsyncStream<T> fromPromise(@NonNull final Promise<T> promise) {
+        Promise.assertNonNull("promise should not be null.", promise);
+        return new AsyncStream<T>() {
+            private boolean requested;
+
+            @NonNull
+            @Override
+            public Promise<List<T>> request(int n) {
+                if (requested) {
+                    return Promise.resolve(null);
+                }
+                requested = true;
+                return promise.thenFilter(new Filter<T, List<T>>() {
+                    @Override
+                    public List<T> filter(@Nullable T result) throws Exception {
+                        return Collections.singletonList(result);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * create stream of pages.
+     *
+     * next page is loaded only when results of the previous page are consumed.
+     *
+     * @param loader called with page index from 0. stream completes when it pipes null or empty list.
+     */
+    @NonNull
+    public static <T> AsyncStream<T> fromPages(@NonNull Pipe<Integer, List<T>> loader) {
+        Promise.assertNonNull("loader should not be null.", loader);
+        return new PageStream<>(loader);
+    }
+
+    @NonNull
+    public <R> AsyncStream<R> map(@NonNull final Filter<T, R> filter) {
+        Promise.assertNonNull("filter should not be null.", filter);
+        final AsyncStream<T> upstream = this;
+        return new AsyncStream<R>() {
+            @NonNull
+            @Override
+            public Promise<List<R>> request(int n) {
+                return upstream.request(n).thenFilter(new Filter<List<T>, List<R>>() {
+                    @Nullable
+                    @Override
+                    public List<R> filter(@Nullable List<T> result) throws Exception {
+                        if (result == null) {
+                            return null;
+                        }
+                        List<R> mapped = new ArrayList<>(result.size());
+                        for (T one : result) {
+                            mapped.add(filter.filter(one));
+                        }
+                        return mapped;
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * @param filter returns true to keep result. null is treated as false.
+     */
+    @NonNull
+    public AsyncStream<T> filter(@NonNull Filter<T, Boolean> filter) {
+        Promise.assertNonNull("filter should not be null.", filter);
+        return new FilterStream<>(this, filter);
+    }
+
+    /**
+     * concatenate streams created from each result.
+     */
+    @NonNull
+    public <R> AsyncStream<R> flatMap(@NonNull Filter<T, AsyncStream<R>> filter) {
+        Promise.assertNonNull("filter should not be null.", filter);
+        return new FlatMapStream<>(this, filter);
+    }
+
+    @NonNull
+    public AsyncStream<T> take(final long count) {
+        final AsyncStream<T> upstream = this;
+        return new AsyncStream<T>() {
+            private long remaining = count;
+
+            @NonNull
+            @Override
+            public Promise<List<T>> request(int n) {
+                if (remaining <= 0) {
+                    return Promise.resolve(null);
+                }
+                return upstream.request((int) Math.min(n, remaining)).thenFilter(new Filter<List<T>, List<T>>() {
+                    @Nullable
+                    @Override
+                    public List<T> filter(@Nullable List<T> result) throws Exception {
+                        if (result == null) {
+                            return null;
+                        }
+                        if (result.size() > remaining) {
+                            result = result.subList(0, (int) remaining);
+                        }
+                        remaining -= result.size();
+                        return result;
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * collect results into lists of size. the last list may be shorter. request(n) returns up to n lists.
+     */
+    @NonNull
+    public AsyncStream<List<T>> buffer(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size should be greater than 0.");
+        }
+        return new BufferStream<>(this, size);
+    }
+
+    /**
+     * @return returns promise fulfilled with the first result, or null if the stream is empty
+     */
+    @NonNull
+    public Promise<T> first() {
+        return request(1).thenFilter(new Filter<List<T>, T>() {
+            @Nullable
+            @Override
+            public T filter(@Nullable List<T> result) throws Exception {
+                return result == null || result.isEmpty() ? null : result.get(0);
+            }
+        });
+    }
+
+    @NonNull
+    public Promise<List<T>> toList() {
+        return fold(new ArrayList<T>(), new Accumulator<List<T>, T>() {
+            @Nullable
+            @Override
+            public List<T> accumulate(@Nullable List<T> accumulated, @Nullable T result) throws Exception {
+                //noinspection ConstantConditions
+                accumulated.add(result);
+                return accumulated;
+            }
+        });
+    }
+
+    /**
+     * accumulate all results. results are requested in batches, and are not held after accumulated.
+     */
+    @NonNull
+    public <N> Promise<N> fold(@Nullable final N seed, @NonNull final Accumulator<N, T> accumulator) {
+        Promise.assertNonNull("accumulator should not be null.", accumulator);
+        final Promise<N> promise = new Promise<>(Promise.getLooper());
+        new Promise.Chain<List<T>>() {
+            private N accumulated = seed;
+
+            {
+                request(BATCH_SIZE).chain(this);
+            }
+
+            @Override
+            public void chain(Promise<List<T>> from) {
+                if (from.status != Promise.STATUS_FULFILLED) {
+                    promise.doReject(from.exception);
+                    return;
+                }
+                if (from.result == null) {
+                    promise.doFulfill(accumulated);
+                    return;
+                }
+                try {
+                    for (T one : from.result) {
+                        accumulated = accumulator.accumulate(accumulated, one);
+                    }
+                } catch (Exception e) {
+                    promise.doReject(e);
+                    return;
+                }
+                request(BATCH_SIZE).chain(this);
+            }
+        };
+        return promise;
+    }
+
+    /**
+     * base of streams which may need several upstream results to produce one.
+     */
+    private abstract static class PullStream<T> extends AsyncStream<T> {
+        private Promise<List<T>> pending;
+        private int requested;
+
+        @NonNull
+        @Override
+        public final Promise<List<T>> request(int n) {
+            if (n <= 0) {
+                throw new IllegalArgumentException("n should be greater than 0.");
+            }
+            pending = new Promise<>(Promise.getLooper());
+            requested = n;
+            Promise<List<T>> promise = pending;
+            pull(n);
+            return promise;
+        }
+
+        /**
+         * produce results with complete() or fail(), or call pull() again later.
+         */
+        abstract void pull(int n);
+
+        final void complete(@Nullable List<T> results) {
+            Promise<List<T>> promise = pending;
+            pending = null;
+            promise.doFulfill(results);
+        }
+
+        final void fail(Exception exception) {
+            Promise<List<T>> promise = pending;
+            pending = null;
+            promise.doReject(exception);
+        }
+
+        final void pullAgain() {
+            pull(requested);
+        }
+    }
+
+    private static final class PageStream<T> extends PullStream<T> implements Promise.Chain<List<T>> {
+        private final Pipe<Integer, List<T>> loader;
+        private List<T> page;
+        private int offset;
+        private int index;
+        private boolean completed;
+
+        PageStream(Pipe<Integer, List<T>> loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        void pull(int n) {
+            if (page != null && offset < page.size()) {
+                int end = Math.min(page.size(), offset + n);
+                List<T> results = new ArrayList<>(page.subList(offset, end));
+                offset = end;
+                complete(results);
+                return;
+            }
+            page = null;
+            if (completed) {
+                complete(null);
+                return;
+            }
+            Promise<List<T>> loaded;
+            try {
+                loaded = loader.pipe(index++);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            if (loaded == null) {
+                completed = true;
+                complete(null);
+                return;
+            }
+            loaded.chain(this);
+        }
+
+        @Override
+        public void chain(Promise<List<T>> from) {
+            if (from.status != Promise.STATUS_FULFILLED) {
+                fail(from.exception);
+                return;
+            }
+            if (from.result == null || from.result.isEmpty()) {
+                completed = true;
+                complete(null);
+                return;
+            }
+            page = from.result;
+            offset = 0;
+            pullAgain();
+        }
+    }
+
+    private static final class FilterStream<T> extends PullStream<T> implements Promise.Chain<List<T>> {
+        private final AsyncStream<T> upstream;
+        private final Filter<T, Boolean> filter;
+
+        FilterStream(AsyncStream<T> upstream, Filter<T, Boolean> filter) {
+            this.upstream = upstream;
+            this.filter = filter;
+        }
+
+        @Override
+        void pull(int n) {
+            upstream.request(n).chain(this);
+        }
+
+        @Override
+        public void chain(Promise<List<T>> from) {
+            if (from.status != Promise.STATUS_FULFILLED) {
+                fail(from.exception);
+                return;
+            }
+            if (from.result == null) {
+                complete(null);
+                return;
+            }
+            List<T> results = new ArrayList<>(from.result.size());
+            try {
+                for (T one : from.result) {
+                    Boolean keep = filter.filter(one);
+                    if (keep != null && keep) {
+                        results.add(one);
+                    }
+                }
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            if (results.isEmpty()) {
+                pullAgain();
+                return;
+            }
+            complete(results);
+        }
+    }
+
+    private static final class FlatMapStream<T, R> extends PullStream<R> {
+        private final AsyncStream<T> upstream;
+        private final Filter<T, AsyncStream<R>> filter;
+        private final List<T> outer = new ArrayList<>();
+        private AsyncStream<R> inner;
+        private boolean completed;
+
+        private final Promise.Chain<List<T>> outerChain = new Promise.Chain<List<T>>() {
+            @Override
+            public void chain(Promise<List<T>> from) {
+                if (from.status != Promise.STATUS_FULFILLED) {
+                    fail(from.exception);
+                    return;
+                }
+                if (from.result == null) {
+                    completed = true;
+                } else {
+                    outer.addAll(from.result);
+                }
+                pullAgain();
+            }
+        };
+
+        private final Promise.Chain<List<R>> innerChain = new Promise.Chain<List<R>>() {
+            @Override
+            public void chain(Promise<List<R>> from) {
+                if (from.status != Promise.STATUS_FULFILLED) {
+                    fail(from.exception);
+                    return;
+                }
+                if (from.result == null) {
+                    inner = null;
+                    pullAgain();
+                    return;
+                }
+                complete(from.result);
+            }
+        };
+
+        FlatMapStream(AsyncStream<T> upstream, Filter<T, AsyncStream<R>> filter) {
+            this.upstream = upstream;
+            this.filter = filter;
+        }
+
+        @Override
+        void pull(int n) {
+            while (inner == null) {
+                if (outer.isEmpty()) {
+                    if (completed) {
+                        complete(null);
+                    } else {
+                        upstream.request(1).chain(outerChain);
+                    }
+                    return;
+                }
+                try {
+                    inner = filter.filter(outer.remove(0));
+                } catch (Exception e) {
+                    fail(e);
+                    return;
+                }
+            }
+            inner.request(n).chain(innerChain);
+        }
+    }
+
+    private static final class BufferStream<T> extends PullStream<List<T>> implements Promise.Chain<List<T>> {
+        private final AsyncStream<T> upstream;
+        private final int size;
+        private List<T> buffer;
+        private boolean completed;
+
+        BufferStream(AsyncStream<T> upstream, int size) {
+            this.upstream = upstream;
+            this.size = size;
+        }
+
+        @Override
+        void pull(int n) {
+            if (completed) {
+                complete(null);
+                return;
+            }
+            if (buffer == null) {
+                buffer = new ArrayList<>(size);
+            }
+            // enough to fill n lists at most, and upstream returns what it has without waiting for all
+            long wanted = (long) n * size - buffer.size();
+            upstream.request((int) Math.min(wanted, Integer.MAX_VALUE)).chain(this);
+        }
+
+        @Override
+        public void chain(Promise<List<T>> from) {
+            if (from.status != Promise.STATUS_FULFILLED) {
+                fail(from.exception);
+                return;
+            }
+            if (from.result == null) {
+                completed = true;
+                List<T> last = buffer;
+                buffer = null;
+                complete(last.isEmpty() ? null : Collections.singletonList(last));
+                return;
+            }
+            List<List<T>> full = new ArrayList<>();
+            for (T result : from.result) {
+                buffer.add(result);
+                if (buffer.size() == size) {
+                    full.add(buffer);
+                    buffer = new ArrayList<>(size);
+                }
+            }
+            if (full.isEmpty()) {
+                pullAgain();
+                return;
+            }
+            complete(full);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package jp.rubi3.apromise;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * BatchLoader
+ *
+ * Collects load calls made during one looper tick and passes their keys to the batch pipe at once.
+ * Keys requested more than once in a tick share one promise.
+ * Keys missing from the batch result are fulfilled with null.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class BatchLoader<K, V> {
+    private final Handler handler;
+    private final Pipe<List<K>, Map<K, V>> batch;
+    private final int maxBatchSize;
+    private Map<K, Promise<V>> queue = new LinkedHashMap<>();
+    private boolean scheduled;
+
+    private final Runnable dispatch = new Runnable() {
+        @Override
+        public void run() {
+            Map<K, Promise<V>> pending;
+            synchronized (BatchLoader.this) {
+                pending = queue;
+                queue = new LinkedHashMap<>();
+                scheduled = false;
+            }
+            List<K> keys = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+            Map<K, Promise<V>> promises = new LinkedHashMap<>();
+            for (Map.Entry<K, Promise<V>> entry : pending.entrySet()) {
+                keys.add(entry.getKey());
+                promises.put(entry.getKey(), entry.getValue());
+                if (keys.size() == maxBatchSize) {
+                    load(keys, promises);
+                    keys = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+                    promises = new LinkedHashMap<>();
+                }
+            }
+            if (!keys.isEmpty()) {
+                load(keys, promises);
+            }
+        }
+    };
+
+    public BatchLoader(@NonNull Pipe<List<K>, Map<K, V>> batch) {
+        this(null, batch, Integer.MAX_VALUE);
+    }
+
+    /**
+     * create batch loader.
+     *
+     * @param looper looper to dispatch batches and continuations on. current looper if null.
+     * @param batch called once per tick with distinct keys
+     * @param maxBatchSize maximum number of keys per batch call
+     */
+    public BatchLoader(@Nullable Looper looper, @NonNull Pipe<List<K>, Map<K, V>> batch, int maxBatchSize) {
+        Promise.assertNonNull("batch should not be null.", batch);
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize should be greater than 0.");
+        }
+        this.handler = new Handler(looper != null ? looper : Promise.getLooper());
+        this.batch = batch;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * load value for key with the next batch.
+     *
+     * @param key key to load
+     * @return returns promise fulfilled with the value for key
+     */
+    @NonNull
+    public synchronized Promise<V> load(@NonNull K key) {
+        Promise.assertNonNull("key should not be null.", key);
+        Promise<V> promise = queue.get(key);
+        if (promise != null) {
+            return promise;
+        }
+        promise = new Promise<>(handler.getLooper());
+        queue.put(key, promise);
+        if (!scheduled) {
+            scheduled = true;
+            handler.post(dispatch);
+        }
+        return promise;
+    }
+
+    private void load(List<K> keys, final Map<K, Promise<V>> promises) {
+        Promise<Map<K, V>> loaded;
+        try {
+            loaded = batch.pipe(keys);
+        } catch (Exception e) {
+            for (Promise<V> promise : promises.values()) {
+                promise.doReject(e);
+            }
+            return;
+        }
+        if (loaded == null) {
+            for (Promise<V> promise : promises.values()) {
+                promise.doFulfill(null);
+            }
+            return;
+        }
+        loaded.chain(new Promise.Chain<Map<K, V>>() {
+            @Override
+            public void chain(Promise<Map<K, V>> from) {
+                for (Map.Entry<K, Promise<V>> entry : promises.entrySet()) {
+                    if (from.status != Promise.STATUS_FULFILLED) {
+                        entry.getValue().doReject(from.exception);
+                    } else {
+                        entry.getValue().doFulfill(from.result != null ? from.result.get(entry.getKey()) : null);
+                    }
+                }
+            }
+        });
+    }
+}
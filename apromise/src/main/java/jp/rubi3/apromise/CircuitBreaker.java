@@ -0,0 +1,207 @@
+package jp.rubi3.apromise;
+
+import android.os.SystemClock;
+import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.annotation.Retention;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ *
+ * CircuitBreaker
+ *
+ * Counts results of wrapped calls in a sliding window of ring buckets.
+ * Opens when failure rate reaches the threshold, and then returns rejected promises without calling anything.
+ * After openMillis one trial call is let through. Its result closes or reopens the circuit.
+ * A trial not settled within openMillis is abandoned, and another one is let through.
+ *
+ * Counters are lock-free and approximate while buckets roll over.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class CircuitBreaker {
+    @Retention(SOURCE)
+    @IntDef({STATE_CLOSED, STATE_OPEN, STATE_HALF_OPEN})
+    public @interface State {}
+    public static final int STATE_CLOSED = 0;
+    public static final int STATE_OPEN = 1;
+    public static final int STATE_HALF_OPEN = 2;
+
+    private static final int BUCKETS = 10;
+    // permissions. trial calls get the time they started at instead
+    private static final long DENIED = -2;
+    private static final long PERMITTED = -1;
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long bucketMillis;
+    private final long openMillis;
+    private final AtomicLongArray epochs = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray successes = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray failures = new AtomicLongArray(BUCKETS);
+    private final AtomicInteger state = new AtomicInteger(STATE_CLOSED);
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicLong trialStartedAt = new AtomicLong(PERMITTED);
+
+    /**
+     * create circuit breaker.
+     *
+     * @param failureRateThreshold failure rate to open, between 0 and 1
+     * @param minimumCalls calls needed in the window before failure rate is considered
+     * @param windowMillis length of sliding window
+     * @param openMillis time to stay open before a trial call
+     */
+    public CircuitBreaker(double failureRateThreshold, int minimumCalls, long windowMillis, long openMillis) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold should be greater than 0 and not greater than 1.");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        this.openMillis = openMillis;
+        reset();
+    }
+
+    @State
+    public int getState() {
+        return state.get();
+    }
+
+    /**
+     * create promise with function unless circuit is open.
+     *
+     * @param function function for the promise
+     * @return returns promise created with function, or promise rejected with CircuitOpenException
+     */
+    @NonNull
+    public <D> Promise<D> execute(@NonNull Function<D> function) {
+        Promise.assertNonNull("Function should not be null.", function);
+        long permission = acquire();
+        if (permission == DENIED) {
+            return new Promise<D>(Promise.getLooper()).doReject(new CircuitOpenException(this));
+        }
+        return observe(new Promise<>(function), permission);
+    }
+
+    /**
+     * wrap pipe to call through this circuit breaker.
+     *
+     * @param pipe pipe to wrap
+     * @return returns pipe which is rejected with CircuitOpenException while circuit is open
+     */
+    @NonNull
+    public <D, N> Pipe<D, N> wrap(@NonNull final Pipe<D, N> pipe) {
+        Promise.assertNonNull("Pipe should not be null.", pipe);
+        return new Pipe<D, N>() {
+            @Nullable
+            @Override
+            public Promise<N> pipe(@Nullable D result) throws Exception {
+                long permission = acquire();
+                if (permission == DENIED) {
+                    throw new CircuitOpenException(CircuitBreaker.this);
+                }
+                Promise<N> piped;
+                try {
+                    piped = pipe.pipe(result);
+                } catch (Exception e) {
+                    record(false, permission);
+                    throw e;
+                }
+                if (piped == null) {
+                    record(true, permission);
+                    return null;
+                }
+                return observe(piped, permission);
+            }
+        };
+    }
+
+    private <D> Promise<D> observe(Promise<D> promise, final long permission) {
+        return promise.chain(new Promise.Chain<D>() {
+            @Override
+            public void chain(Promise<D> from) {
+                record(from.status == Promise.STATUS_FULFILLED, permission);
+            }
+        });
+    }
+
+    /**
+     * @return returns DENIED, PERMITTED, or time the trial started at
+     */
+    private long acquire() {
+        while (true) {
+            long now = SystemClock.uptimeMillis();
+            switch (state.get()) {
+                case STATE_CLOSED:
+                    return PERMITTED;
+                case STATE_OPEN:
+                    if (now - openedAt.get() < openMillis) {
+                        return DENIED;
+                    }
+                    state.compareAndSet(STATE_OPEN, STATE_HALF_OPEN);
+                    break;
+                default:
+                    long started = trialStartedAt.get();
+                    // a trial which never settles would otherwise keep the circuit half open forever
+                    if ((started == PERMITTED || now - started >= openMillis)
+                            && trialStartedAt.compareAndSet(started, now)) {
+                        return now;
+                    }
+                    return DENIED;
+            }
+        }
+    }
+
+    private void record(boolean success, long permission) {
+        long now = SystemClock.uptimeMillis();
+        if (permission >= 0 && trialStartedAt.compareAndSet(permission, PERMITTED)) {
+            if (success) {
+                reset();
+                state.set(STATE_CLOSED);
+            } else {
+                openedAt.set(now);
+                state.set(STATE_OPEN);
+            }
+            return;
+        }
+        long epoch = now / bucketMillis;
+        int index = (int) (epoch % BUCKETS);
+        long seen = epochs.get(index);
+        if (seen != epoch && epochs.compareAndSet(index, seen, epoch)) {
+            successes.set(index, 0);
+            failures.set(index, 0);
+        }
+        (success ? successes : failures).incrementAndGet(index);
+        if (success || state.get() != STATE_CLOSED) {
+            return;
+        }
+        long succeeded = 0;
+        long failed = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = epochs.get(i);
+            if (bucket >= 0 && epoch - bucket < BUCKETS) {
+                succeeded += successes.get(i);
+                failed += failures.get(i);
+            }
+        }
+        long calls = succeeded + failed;
+        if (calls >= minimumCalls && failed >= failureRateThreshold * calls) {
+            openedAt.set(now);
+            state.compareAndSet(STATE_CLOSED, STATE_OPEN);
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, -1);
+            successes.set(i, 0);
+            failures.set(i, 0);
+        }
+    }
+}
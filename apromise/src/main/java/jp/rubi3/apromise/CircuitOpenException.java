@@ -0,0 +1,20 @@
+package jp.rubi3.apromise;
+
+/**
+ * CircuitOpenException
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+
+public class CircuitOpenException extends RuntimeException {
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitOpenException(CircuitBreaker circuitBreaker) {
+        super("Circuit breaker is open.");
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
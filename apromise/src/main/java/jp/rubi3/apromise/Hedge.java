@@ -0,0 +1,117 @@
+package jp.rubi3.apromise;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimerTask;
+
+/**
+ *
+ * Hedge
+ *
+ * Drives Promise.hedge. Every attempt and its callbacks run on one looper, so no locking is needed here.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+final class Hedge<D> implements Runnable {
+    private final Handler handler;
+    private final Function<D> function;
+    private final long delayMillis;
+    private final LatencyTracker tracker;
+    private final int maxHedges;
+    private final Promise<D> promise;
+    private final List<Attempt> attempts = new ArrayList<>();
+    private TimerTask task;
+    private int launched;
+    private int outstanding;
+
+    Hedge(@NonNull Looper looper, @NonNull Function<D> function, long delayMillis, LatencyTracker tracker, int maxHedges) {
+        if (maxHedges < 0) {
+            throw new IllegalArgumentException("maxHedges should not be negative.");
+        }
+        this.handler = new Handler(looper);
+        this.function = function;
+        this.delayMillis = delayMillis;
+        this.tracker = tracker;
+        this.maxHedges = maxHedges;
+        this.promise = new Promise<>(looper);
+    }
+
+    @NonNull
+    Promise<D> start() {
+        promise.chain(new Promise.Chain<D>() {
+            @Override
+            public void chain(Promise<D> from) {
+                finish();
+            }
+        });
+        run();
+        return promise;
+    }
+
+    @Override
+    public void run() {
+        if (handler.getLooper() != Looper.myLooper()) {
+            handler.post(PromiseContext.wrap(this));
+            return;
+        }
+        if (!promise.isPending() || launched > maxHedges) {
+            return;
+        }
+        launch();
+    }
+
+    private void launch() {
+        SharedTimer.cancel(task);
+        launched++;
+        outstanding++;
+        Attempt attempt = new Attempt();
+        attempts.add(attempt);
+        attempt.promise = new Promise<>(handler.getLooper(), function);
+        attempt.promise.chain(attempt);
+        if (launched <= maxHedges) {
+            task = SharedTimer.schedule(this, tracker != null ? tracker.getDelay() : delayMillis);
+        }
+    }
+
+    private void finish() {
+        SharedTimer.cancel(task);
+        task = null;
+        for (Attempt attempt : attempts) {
+            attempt.promise.cancel();
+        }
+        attempts.clear();
+    }
+
+    private final class Attempt implements Promise.Chain<D> {
+        final long startedAt = SystemClock.uptimeMillis();
+        Promise<D> promise;
+
+        @Override
+        public void chain(Promise<D> from) {
+            outstanding--;
+            if (!Hedge.this.promise.isPending()) {
+                return;
+            }
+            if (from.status == Promise.STATUS_FULFILLED) {
+                if (tracker != null) {
+                    tracker.record(SystemClock.uptimeMillis() - startedAt);
+                }
+                Hedge.this.promise.doApply(from);
+                return;
+            }
+            if (outstanding > 0) {
+                return;
+            }
+            if (launched <= maxHedges) {
+                launch();
+                return;
+            }
+            Hedge.this.promise.doReject(from.exception);
+        }
+    }
+}
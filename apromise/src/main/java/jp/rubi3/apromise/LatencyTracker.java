@@ -0,0 +1,59 @@
+package jp.rubi3.apromise;
+
+import java.util.Arrays;
+
+/**
+ *
+ * LatencyTracker
+ *
+ * Keeps recent latencies in a ring and answers a percentile of them, for Promise.hedge.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class LatencyTracker {
+    private final long[] samples;
+    private final double percentile;
+    private final long initialDelayMillis;
+    private int count;
+    private int next;
+
+    /**
+     * create tracker.
+     *
+     * @param windowSize number of recent latencies to keep
+     * @param percentile percentile to answer, between 0 and 1. e.g. 0.95
+     * @param initialDelayMillis answered until the window is filled
+     */
+    public LatencyTracker(int windowSize, double percentile, long initialDelayMillis) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize should be greater than 0.");
+        }
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile should be between 0 and 1.");
+        }
+        this.samples = new long[windowSize];
+        this.percentile = percentile;
+        this.initialDelayMillis = initialDelayMillis;
+    }
+
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public long getDelay() {
+        long[] sorted;
+        synchronized (this) {
+            if (count < samples.length) {
+                return initialDelayMillis;
+            }
+            sorted = samples.clone();
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+}
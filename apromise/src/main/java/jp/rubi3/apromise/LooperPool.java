@@ -0,0 +1,132 @@
+package jp.rubi3.apromise;
+
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ *
+ * LooperPool
+ *
+ * Fixed number of HandlerThreads to create promises on. next() returns the looper with the fewest
+ * pending promises submitted to it, so background work is spread over the threads instead of queueing on one.
+ *
+ * then*, catch* and finally* run on the looper of their promise, so a chain stays on the worker it was submitted to.
+ * Work is never stolen between workers, as messages of a Handler can not move to another looper.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class LooperPool implements Closeable {
+    private final HandlerThread[] threads;
+    private final AtomicIntegerArray pending;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /**
+     * create pool of background priority threads.
+     *
+     * @param name prefix of thread names
+     * @param size number of threads
+     */
+    public LooperPool(@NonNull String name, int size) {
+        this(name, size, Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    /**
+     * create pool.
+     *
+     * @param name prefix of thread names
+     * @param size number of threads
+     * @param priority thread priority from android.os.Process
+     */
+    public LooperPool(@NonNull String name, int size, int priority) {
+        Promise.assertNonNull("name should not be null.", name);
+        if (size <= 0) {
+            throw new IllegalArgumentException("size should be greater than 0.");
+        }
+        threads = new HandlerThread[size];
+        pending = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            threads[i] = new HandlerThread(name + "-" + i, priority);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * create pool with a thread for each available processor.
+     */
+    @NonNull
+    public static LooperPool withProcessors(@NonNull String name) {
+        return new LooperPool(name, Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int size() {
+        return threads.length;
+    }
+
+    /**
+     * @return returns looper with the fewest pending promises submitted to it
+     */
+    @NonNull
+    public Looper next() {
+        return threads[select()].getLooper();
+    }
+
+    /**
+     * create promise with function on the least loaded looper.
+     */
+    @NonNull
+    public <D> Promise<D> submit(@NonNull Function<D> function) {
+        Promise.assertNonNull("Function should not be null.", function);
+        final int index = select();
+        pending.incrementAndGet(index);
+        return new Promise<>(threads[index].getLooper(), function).chain(new Promise.Chain<D>() {
+            @Override
+            public void chain(Promise<D> from) {
+                pending.decrementAndGet(index);
+            }
+        });
+    }
+
+    /**
+     * @return returns number of pending promises submitted to each looper
+     */
+    @NonNull
+    public int[] getPendingCounts() {
+        int[] counts = new int[threads.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = pending.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * quit all threads. messages not yet handled are dropped.
+     */
+    @Override
+    public void close() {
+        for (HandlerThread thread : threads) {
+            thread.quit();
+        }
+    }
+
+    private int select() {
+        // start from a rotating index so ties are spread
+        int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % threads.length;
+        int best = start;
+        int least = pending.get(start);
+        for (int i = 1; i < threads.length && least > 0; i++) {
+            int index = (start + i) % threads.length;
+            int count = pending.get(index);
+            if (count < least) {
+                best = index;
+                least = count;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,24 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ *
+ * OwnerCallback
+ *
+ * Callback of a weakly held owner, such as Activity or View.
+ * Implementations should reach the owner only through the argument, so they do not keep it alive.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public interface OwnerCallback<O, D> {
+    /***
+     * callback
+     *
+     * @param owner owner which is still alive
+     * @param result previous result
+     * @throws Exception to reject
+     */
+    void callback(@NonNull O owner, @Nullable D result) throws Exception;
+}
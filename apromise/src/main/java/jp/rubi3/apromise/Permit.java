@@ -0,0 +1,30 @@
+package jp.rubi3.apromise;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *
+ * Permit
+ *
+ * Permit of AsyncSemaphore or AsyncMutex. release() returns it, and calls after the first are ignored.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class Permit {
+    private final AsyncSemaphore semaphore;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    Permit(AsyncSemaphore semaphore) {
+        this.semaphore = semaphore;
+    }
+
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            semaphore.release();
+        }
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+}
@@ -0,0 +1,232 @@
+package jp.rubi3.apromise;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ *
+ * Pipeline
+ *
+ * Immutable sequence of then* and catch* stages, built once and applied to many inputs.
+ * apply() allocates one promise and one state for each input, instead of a promise and a chain for each stage,
+ * and runs the stages in one message of the looper. Only a piped promise makes it wait, and it continues on the looper.
+ *
+ * Stages behave like the then* and catch* methods of Promise with the same arguments.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class Pipeline<I, O> {
+    private static final int KIND_FILTER = 0;
+    private static final int KIND_PIPE = 1;
+    private static final int KIND_CALLBACK = 2;
+
+    private static final Stage[] EMPTY = new Stage[0];
+
+    private final Stage[] stages;
+
+    private Pipeline(Stage[] stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * @return returns pipeline without stages, which fulfills with the input
+     */
+    @NonNull
+    public static <I> Pipeline<I, I> create() {
+        return new Pipeline<>(EMPTY);
+    }
+
+    @NonNull
+    public <N> Pipeline<I, N> thenFilter(@NonNull Filter<O, N> fulfilled) {
+        return thenFilter(fulfilled, null);
+    }
+
+    @NonNull
+    public <N> Pipeline<I, N> thenFilter(@NonNull Filter<O, N> fulfilled, @Nullable FilterNonNull<Exception, N> rejected) {
+        Promise.assertNonNull("fulfilled should be not null.", fulfilled);
+        return append(new Stage(KIND_FILTER, fulfilled, rejected));
+    }
+
+    @NonNull
+    public <N> Pipeline<I, N> thenPipe(@NonNull Pipe<O, N> fulfilled) {
+        return thenPipe(fulfilled, null);
+    }
+
+    @NonNull
+    public <N> Pipeline<I, N> thenPipe(@NonNull Pipe<O, N> fulfilled, @Nullable PipeNonNull<Exception, N> rejected) {
+        Promise.assertNonNull("fulfilled should be not null.", fulfilled);
+        return append(new Stage(KIND_PIPE, fulfilled, rejected));
+    }
+
+    @NonNull
+    public Pipeline<I, O> thenCallback(@Nullable Callback<O> fulfilled) {
+        return thenCallback(fulfilled, null);
+    }
+
+    @NonNull
+    public Pipeline<I, O> thenCallback(@Nullable Callback<O> fulfilled, @Nullable CallbackNonNull<Exception> rejected) {
+        return append(new Stage(KIND_CALLBACK, fulfilled, rejected));
+    }
+
+    @NonNull
+    public Pipeline<I, O> catchFilter(@Nullable FilterNonNull<Exception, O> rejected) {
+        return append(new Stage(KIND_FILTER, null, rejected));
+    }
+
+    @NonNull
+    public Pipeline<I, O> catchPipe(@Nullable PipeNonNull<Exception, O> rejected) {
+        return append(new Stage(KIND_PIPE, null, rejected));
+    }
+
+    @NonNull
+    public Pipeline<I, O> catchCallback(@Nullable CallbackNonNull<Exception> rejected) {
+        return append(new Stage(KIND_CALLBACK, null, rejected));
+    }
+
+    /**
+     * @return returns number of stages
+     */
+    public int size() {
+        return stages.length;
+    }
+
+    /**
+     * run stages with input on the current looper, or main looper.
+     *
+     * @return returns promise settled with the result of the last stage
+     */
+    @NonNull
+    public Promise<O> apply(@Nullable I input) {
+        return apply(null, input);
+    }
+
+    /**
+     * run stages with input on looper.
+     *
+     * @see #apply(Object)
+     */
+    @NonNull
+    public Promise<O> apply(@Nullable Looper looper, @Nullable I input) {
+        Looper target = looper != null ? looper : Promise.getLooper();
+        Promise<O> promise = new Promise<>(target);
+        promise.post(new Run(target, promise, input));
+        return promise;
+    }
+
+    private <N> Pipeline<I, N> append(Stage stage) {
+        Stage[] appended = new Stage[stages.length + 1];
+        System.arraycopy(stages, 0, appended, 0, stages.length);
+        appended[stages.length] = stage;
+        return new Pipeline<>(appended);
+    }
+
+    private static final class Stage {
+        final int kind;
+        final Object fulfilled;
+        final Object rejected;
+
+        Stage(int kind, Object fulfilled, Object rejected) {
+            this.kind = kind;
+            this.fulfilled = fulfilled;
+            this.rejected = rejected;
+        }
+    }
+
+    private final class Run implements Runnable, Promise.Chain<Object> {
+        private final Looper looper;
+        private final Promise<O> promise;
+        private int index;
+        private Object result;
+        private Exception exception;
+
+        Run(Looper looper, Promise<O> promise, Object input) {
+            this.looper = looper;
+            this.promise = promise;
+            this.result = input;
+        }
+
+        @Override
+        public void run() {
+            while (index < stages.length) {
+                Stage stage = stages[index];
+                Promise<?> piped;
+                try {
+                    piped = step(stage);
+                } catch (Exception e) {
+                    result = null;
+                    exception = e;
+                    piped = null;
+                }
+                if (piped != null) {
+                    @SuppressWarnings("unchecked")
+                    Promise<Object> waiting = (Promise<Object>) piped;
+                    waiting.chain(this);
+                    return;
+                }
+                index++;
+            }
+            settle();
+        }
+
+        @Override
+        public void chain(Promise<Object> from) {
+            if (from.status == Promise.STATUS_FULFILLED) {
+                result = from.result;
+                exception = null;
+            } else {
+                result = null;
+                exception = from.exception;
+            }
+            index++;
+            if (Looper.myLooper() == looper) {
+                run();
+            } else {
+                promise.post(this);
+            }
+        }
+
+        /**
+         * @return returns piped promise to wait for, or null to go on
+         */
+        @SuppressWarnings("unchecked")
+        private Promise<?> step(Stage stage) throws Exception {
+            boolean fulfilled = exception == null;
+            Object handler = fulfilled ? stage.fulfilled : stage.rejected;
+            if (handler == null) {
+                return null;
+            }
+            switch (stage.kind) {
+                case KIND_FILTER:
+                    result = fulfilled
+                            ? ((Filter<Object, Object>) handler).filter(result)
+                            : ((FilterNonNull<Exception, Object>) handler).filter(exception);
+                    exception = null;
+                    return null;
+                case KIND_PIPE:
+                    Promise<?> piped = fulfilled
+                            ? ((Pipe<Object, Object>) handler).pipe(result)
+                            : ((PipeNonNull<Exception, Object>) handler).pipe(exception);
+                    result = null;
+                    exception = null;
+                    return piped;
+                default:
+                    if (fulfilled) {
+                        ((Callback<Object>) handler).callback(result);
+                    } else {
+                        ((CallbackNonNull<Exception>) handler).callback(exception);
+                    }
+                    return null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void settle() {
+            if (exception != null) {
+                promise.doReject(exception);
+            } else {
+                promise.doFulfill((O) result);
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package jp.rubi3.apromise;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ *
+ * PriorityLanes
+ *
+ * Queues of prioritized messages of a looper.
+ * Immediate messages are dispatched in the order they were sent, by a runnable posted at the front of the queue.
+ * Background messages are posted one at a time, so messages posted meanwhile run before the next one.
+ * Idle messages are dispatched one at a time by an IdleHandler, when the looper has nothing else to do.
+ * An empty message is posted after each of them while more are queued, as the IdleHandler is not called again until then.
+ *
+ * Lanes hold no looper while empty, so they are dropped with their looper.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+final class PriorityLanes {
+    private static final Map<Looper, PriorityLanes> LANES = new WeakHashMap<>();
+
+    private final Deque<Message> immediate = new ArrayDeque<>();
+    private final Deque<Message> background = new ArrayDeque<>();
+    private final Deque<Message> idle = new ArrayDeque<>();
+    private boolean immediatePosted;
+    private boolean backgroundPosted;
+    private boolean idleRegistered;
+
+    private final Runnable immediateRunner = new Runnable() {
+        @Override
+        public void run() {
+            Message message;
+            synchronized (PriorityLanes.this) {
+                message = immediate.poll();
+            }
+            try {
+                // messages sent meanwhile are dispatched by this run too, still ahead of the queue
+                while (message != null) {
+                    message.getTarget().dispatchMessage(message);
+                    synchronized (PriorityLanes.this) {
+                        message = immediate.poll();
+                    }
+                }
+            } finally {
+                Handler next = null;
+                synchronized (PriorityLanes.this) {
+                    if (immediate.isEmpty()) {
+                        immediatePosted = false;
+                    } else {
+                        next = immediate.peek().getTarget();
+                    }
+                }
+                if (next != null) {
+                    next.postAtFrontOfQueue(this);
+                }
+            }
+        }
+    };
+
+    private final Runnable backgroundRunner = new Runnable() {
+        @Override
+        public void run() {
+            Message message;
+            synchronized (PriorityLanes.this) {
+                message = background.poll();
+            }
+            try {
+                if (message != null) {
+                    message.getTarget().dispatchMessage(message);
+                }
+            } finally {
+                Handler next = null;
+                synchronized (PriorityLanes.this) {
+                    if (background.isEmpty()) {
+                        backgroundPosted = false;
+                    } else {
+                        next = background.peek().getTarget();
+                    }
+                }
+                if (next != null) {
+                    next.post(this);
+                }
+            }
+        }
+    };
+
+    private final MessageQueue.IdleHandler idleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            Message message;
+            synchronized (PriorityLanes.this) {
+                message = idle.poll();
+            }
+            try {
+                if (message != null) {
+                    message.getTarget().dispatchMessage(message);
+                }
+            } finally {
+                Handler next = null;
+                synchronized (PriorityLanes.this) {
+                    if (idle.isEmpty()) {
+                        idleRegistered = false;
+                    } else {
+                        next = idle.peek().getTarget();
+                    }
+                }
+                // IdleHandlers run once each time the queue drains, so wake the looper for the next message
+                if (next != null) {
+                    next.post(WAKE_UP);
+                }
+            }
+            synchronized (PriorityLanes.this) {
+                return idleRegistered;
+            }
+        }
+    };
+
+    private static final Runnable WAKE_UP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final Runnable idleRegisterer = new Runnable() {
+        @Override
+        public void run() {
+            Looper.myQueue().addIdleHandler(idleHandler);
+        }
+    };
+
+    private PriorityLanes() {
+    }
+
+    private static PriorityLanes of(Looper looper) {
+        synchronized (LANES) {
+            PriorityLanes lanes = LANES.get(looper);
+            if (lanes == null) {
+                lanes = new PriorityLanes();
+                LANES.put(looper, lanes);
+            }
+            return lanes;
+        }
+    }
+
+    static void sendImmediate(Handler handler, Message message) {
+        PriorityLanes lanes = of(handler.getLooper());
+        synchronized (lanes) {
+            lanes.immediate.add(message);
+            if (lanes.immediatePosted) {
+                return;
+            }
+            lanes.immediatePosted = true;
+        }
+        handler.postAtFrontOfQueue(lanes.immediateRunner);
+    }
+
+    static void sendBackground(Handler handler, Message message) {
+        PriorityLanes lanes = of(handler.getLooper());
+        synchronized (lanes) {
+            lanes.background.add(message);
+            if (lanes.backgroundPosted) {
+                return;
+            }
+            lanes.backgroundPosted = true;
+        }
+        handler.post(lanes.backgroundRunner);
+    }
+
+    static void sendIdle(Handler handler, Message message) {
+        PriorityLanes lanes = of(handler.getLooper());
+        synchronized (lanes) {
+            lanes.idle.add(message);
+            if (lanes.idleRegistered) {
+                return;
+            }
+            lanes.idleRegistered = true;
+        }
+        // IdleHandler can only be added on the looper's own thread before API 23
+        handler.post(lanes.idleRegisterer);
+    }
+
+    static void removeMessages(Handler handler, int what) {
+        removeMessages(handler, what, null);
+    }
+
+    /**
+     * @param object object of messages to remove, or null to remove all
+     */
+    static void removeMessages(Handler handler, int what, Object object) {
+        PriorityLanes lanes;
+        synchronized (LANES) {
+            lanes = LANES.get(handler.getLooper());
+        }
+        if (lanes == null) {
+            return;
+        }
+        synchronized (lanes) {
+            remove(lanes.immediate, handler, what, object);
+            remove(lanes.background, handler, what, object);
+            remove(lanes.idle, handler, what, object);
+        }
+    }
+
+    private static void remove(Deque<Message> messages, Handler handler, int what, Object object) {
+        for (Iterator<Message> iterator = messages.iterator(); iterator.hasNext(); ) {
+            Message message = iterator.next();
+            if (message.getTarget() == handler && message.what == what
+                    && (object == null || message.obj == object)) {
+                iterator.remove();
+            }
+        }
+    }
+}
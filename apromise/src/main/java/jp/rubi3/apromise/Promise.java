@@ -11,6 +11,11 @@ import java.lang.annotation.Retention;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.annotation.RetentionPolicy.SOURCE;
 
@@ -58,14 +63,56 @@ public final class Promise<D> {
         return new Promise<D>(getLooper()).doReject(exception);
     }
 
+    /**
+     * create lazy promise.
+     *
+     * function will not be called until the promise is needed by then*, catch*, finally*, all, sync or getResult.
+     * function will never be called if the promise is cancelled before that.
+     *
+     * @param function function to call when needed
+     * @param <D> result object type
+     * @return returns pending promise
+     */
+    @NonNull
+    public static <D> Promise<D> lazy(@NonNull Function<D> function) {
+        return lazy(getLooper(), function);
+    }
+
+    /**
+     * create lazy promise on looper.
+     *
+     * @see #lazy(Function)
+     */
+    @NonNull
+    public static <D> Promise<D> lazy(@Nullable Looper looper, @NonNull Function<D> function) {
+        assertNonNull("Function should not be null.", function);
+        Promise<D> promise = new Promise<>(looper != null ? looper : getLooper());
+        promise.deferred = PromiseContext.wrap(function);
+        return promise;
+    }
+
+    /**
+     * create promise fulfilled when all promises are fulfilled.
+     *
+     * @param promises promises to wait for
+     * @param <D> result object type
+     * @return returns promise fulfilled with results in the order of promises, or rejected with the first rejection
+     */
     @NonNull
     public static <D> Promise<List<D>> all(@NonNull final List<Promise<D>> promises) {
         final Promise<List<D>> promise = new Promise<>(getLooper());
         if (promises.size() == 0) {
             return promise.doFulfill(new ArrayList<D>(0));
         }
-        final List<D> results = new ArrayList<>(promises.size());
+        // inputs may settle on different loopers. each writes its own slot, and the last one publishes the list.
+        final Object[] results = new Object[promises.size()];
+        final AtomicInteger remaining = new AtomicInteger(results.length);
+        int index = 0;
         for (Promise<D> one : promises) {
+            if (PromiseRegistry.enabled) {
+                PromiseRegistry.link(one, promise);
+            }
+            final int slot = index++;
             one.chain(new Chain<D>() {
                 @Override
                 public void chain(Promise<D> from) {
@@ -73,31 +120,187 @@ public final class Promise<D> {
                         promise.doReject(from.exception);
                         return;
                     }
-                    results.add(from.result);
-                    if (results.size() == promises.size()) {
-                        promise.doFulfill(results);
+                    results[slot] = from.result;
+                    if (remaining.decrementAndGet() != 0) {
+                        return;
+                    }
+                    List<D> list = new ArrayList<>(results.length);
+                    for (Object result : results) {
+                        @SuppressWarnings("unchecked")
+                        D value = (D) result;
+                        list.add(value);
                     }
+                    promise.doFulfill(list);
                 }
             });
         }
         return promise;
     }
 
+    /**
+     * create promise which calls function again while it is rejected.
+     *
+     * attempts are delayed by the shared timer according to policy.
+     * returned promise is rejected with the last exception when policy gives up,
+     * or with TimeoutException when policy's timeout passes.
+     *
+     * @param function called for each attempt
+     * @param policy retry policy
+     * @param <D> result object type
+     * @return returns promise applied with the first fulfilled attempt
+     */
+    @NonNull
+    public static <D> Promise<D> retry(@NonNull Function<D> function, @NonNull RetryPolicy policy) {
+        assertNonNull("Function should not be null.", function);
+        assertNonNull("policy should not be null.", policy);
+        return new Retry<>(getLooper(), function, null, policy).start();
+    }
+
+    /**
+     * create promise which pipes again while piped promise is rejected.
+     *
+     * @param pipe called with attempt number from 1 for each attempt
+     * @param policy retry policy
+     * @param <D> result object type
+     * @return returns promise applied with the first fulfilled attempt
+     * @see #retry(Function, RetryPolicy)
+     */
+    @NonNull
+    public static <D> Promise<D> retry(@NonNull Pipe<Integer, D> pipe, @NonNull RetryPolicy policy) {
+        assertNonNull("Pipe should not be null.", pipe);
+        assertNonNull("policy should not be null.", policy);
+        return new Retry<>(getLooper(), null, pipe, policy).start();
+    }
+
+    /**
+     * create promise which calls function again when it takes longer than delay.
+     *
+     * the first fulfilled attempt is applied, and the others are cancelled.
+     * returned promise is rejected only when every launched attempt is rejected.
+     *
+     * @param function called for each attempt
+     * @param delayMillis delay before launching each hedged attempt
+     * @param maxHedges maximum number of attempts in addition to the first one
+     * @param <D> result object type
+     * @return returns promise applied with the first fulfilled attempt
+     */
+    @NonNull
+    public static <D> Promise<D> hedge(@NonNull Function<D> function, long delayMillis, int maxHedges) {
+        assertNonNull("Function should not be null.", function);
+        return new Hedge<>(getLooper(), function, delayMillis, null, maxHedges).start();
+    }
+
+    /**
+     * create promise which calls function again when it takes longer than tracked latency.
+     *
+     * @param function called for each attempt
+     * @param tracker delay is taken from tracker, and latency of fulfilled attempts are recorded to it
+     * @param maxHedges maximum number of attempts in addition to the first one
+     * @param <D> result object type
+     * @return returns promise applied with the first fulfilled attempt
+     * @see #hedge(Function, long, int)
+     */
+    @NonNull
+    public static <D> Promise<D> hedge(@NonNull Function<D> function, @NonNull LatencyTracker tracker, int maxHedges) {
+        assertNonNull("Function should not be null.", function);
+        assertNonNull("tracker should not be null.", tracker);
+        return new Hedge<>(getLooper(), function, 0, tracker, maxHedges).start();
+    }
+
+    /**
+     * create promise which calls blocking callable off the looper.
+     *
+     * callable runs on a virtual thread where the runtime supports them (JDK 21+), otherwise on a pool of daemon threads.
+     *
+     * @param callable blocking code, which may await other promises
+     * @param <D> result object type
+     * @return returns promise fulfilled with the result of callable, or rejected with its exception
+     */
+    @NonNull
+    public static <D> Promise<D> async(@NonNull Callable<D> callable) {
+        return async(getLooper(), callable);
+    }
+
+    /**
+     * create promise on looper which calls blocking callable off the looper.
+     *
+     * @see #async(Callable)
+     */
+    @NonNull
+    public static <D> Promise<D> async(@Nullable Looper looper, @NonNull final Callable<D> callable) {
+        return async(looper, null, callable);
+    }
+
+    /**
+     * create promise on looper which calls blocking callable on executor.
+     *
+     * @param executor executor to call callable on. the shared async executor is used if null
+     * @see #async(Callable)
+     */
+    @NonNull
+    public static <D> Promise<D> async(@Nullable Looper looper, @Nullable Executor executor,
+                                       @NonNull final Callable<D> callable) {
+        assertNonNull("callable should not be null.", callable);
+        final Promise<D> promise = new Promise<>(looper != null ? looper : getLooper());
+        AsyncExecutor.execute(executor, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    promise.doFulfill(callable.call());
+                } catch (Exception e) {
+                    promise.doReject(e);
+                }
+            }
+        });
+        return promise;
+    }
+
     @Retention(SOURCE)
     @IntDef({STATUS_PENDING, STATUS_FULFILLED, STATUS_REJECTED})
     private @interface Status {}
-    private static final int STATUS_PENDING = 0;
-    private static final int STATUS_FULFILLED = 1;
-    private static final int STATUS_REJECTED = 2;
+    static final int STATUS_PENDING = 0;
+    static final int STATUS_FULFILLED = 1;
+    static final int STATUS_REJECTED = 2;
+
+    @Retention(SOURCE)
+    @IntDef({PRIORITY_IMMEDIATE, PRIORITY_NORMAL, PRIORITY_BACKGROUND, PRIORITY_IDLE})
+    public @interface Priority {}
+    /** continuations run ahead of the looper's queue, in the order they were added, also on settled promises. */
+    public static final int PRIORITY_IMMEDIATE = 0;
+    /** continuations are posted at the back of the looper's queue. */
+    public static final int PRIORITY_NORMAL = 1;
+    /** continuations are posted one at a time, behind everything posted meanwhile. */
+    public static final int PRIORITY_BACKGROUND = 2;
+    /** continuations run one at a time when the looper is idle. */
+    public static final int PRIORITY_IDLE = 3;
 
     private Handler handler;
-    private @Status int status = STATUS_PENDING;
-    private D result;
-    private Exception exception;
+    @Priority private volatile int priority = PRIORITY_NORMAL;
+    @Status int status = STATUS_PENDING;
+    D result;
+    Exception exception;
     private List<Chain<D>> chain;
-    private interface Chain<C> {
+    private Function<D> deferred;
+    private boolean disposed;
+    private AsyncStackTrace site;
+    private CountDownLatch settled;
+    interface Chain<C> {
         void chain(Promise<C> from);
     }
+    private static final class Staged<C> implements Chain<C> {
+        final Promise<?> stage;
+        final Chain<C> chain;
+
+        Staged(Promise<?> stage, Chain<C> chain) {
+            this.stage = stage;
+            this.chain = chain;
+        }
+
+        @Override
+        public void chain(Promise<C> from) {
+            chain.chain(from);
+        }
+    }
     private Handler.Callback callback = new Handler.Callback() {
         @Override
         public boolean handleMessage(Message message) {
@@ -107,12 +310,12 @@ public final class Promise<D> {
                 if (status != STATUS_PENDING) {
                     if (chain != null) {
                         for (Chain<D> one : chain) {
-                            one.chain(Promise.this);
+                            run(one);
                         }
                         chain.clear();
                     }
                     if (next != null) {
-                        next.chain(Promise.this);
+                        run(next);
                     }
                     return true;
                 }
@@ -135,6 +338,26 @@ public final class Promise<D> {
         }
         assertNonNull("Function should not be null.", function);
         this.handler = new Handler(looper, callback);
+        if (PromiseRegistry.enabled) {
+            PromiseRegistry.track(this);
+        }
+        if (AsyncStackTrace.enabled) {
+            site = AsyncStackTrace.capture(false);
+        }
+        start(function);
+    }
+
+    Promise(@NonNull Looper looper) {
+        this.handler = new Handler(looper, callback);
+        if (PromiseRegistry.enabled) {
+            PromiseRegistry.track(this);
+        }
+        if (AsyncStackTrace.enabled) {
+            site = AsyncStackTrace.capture(false);
+        }
+    }
+
+    private void start(@NonNull final Function<D> function) {
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
@@ -161,11 +384,75 @@ public final class Promise<D> {
             runnable.run();
             return;
         }
-        this.handler.post(runnable);
+        this.handler.post(PromiseContext.wrap(runnable));
     }
 
-    private Promise(@NonNull Looper looper) {
-        this.handler = new Handler(looper, callback);
+    private void touch() {
+        Function<D> function;
+        synchronized (this) {
+            function = deferred;
+            deferred = null;
+        }
+        if (function != null) {
+            start(function);
+        }
+    }
+
+    /**
+     * cancel pending promise.
+     *
+     * promise will be rejected with CancellationException. lazy function will never be called.
+     *
+     * @return returns false if already fulfilled or rejected.
+     */
+    public synchronized boolean cancel() {
+        if (status != STATUS_PENDING) {
+            return false;
+        }
+        deferred = null;
+        doReject(new CancellationException("Promise was cancelled."));
+        return true;
+    }
+
+    /**
+     * set priority of continuations of this promise.
+     *
+     * only affects messages sent afterwards. continuations already scheduled keep their priority,
+     * so set it before adding continuations, on a promise not shared with others.
+     * then*, catch* and finally* stages created afterwards inherit the priority.
+     *
+     * @param priority one of PRIORITY_*
+     * @return returns this
+     */
+    @NonNull
+    public Promise<D> withPriority(@Priority int priority) {
+        if (priority < PRIORITY_IMMEDIATE || priority > PRIORITY_IDLE) {
+            throw new IllegalArgumentException("priority should be one of PRIORITY_*.");
+        }
+        this.priority = priority;
+        return this;
+    }
+
+    @Priority
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * cancel pending promise without calling its then*, catch* and finally* continuations.
+     *
+     * continuations are released when the rejection is handled on the looper, and instead of calling them,
+     * the promises they return are disposed too, so nothing chained from this promise stays pending.
+     * other continuations, such as those of all, are called with CancellationException.
+     */
+    synchronized boolean dispose() {
+        if (status != STATUS_PENDING) {
+            return false;
+        }
+        deferred = null;
+        disposed = true;
+        doReject(new CancellationException("Promise was cancelled."));
+        return true;
     }
 
     public synchronized boolean isPending() {
@@ -181,56 +468,143 @@ public final class Promise<D> {
     }
 
     @Nullable
-    public synchronized D getResult() throws Exception {
-        if (status == STATUS_PENDING) {
-            throw new PendingException(this);
-        }
-        if (status == STATUS_REJECTED) {
-            throw exception;
+    public D getResult() throws Exception {
+        touch();
+        synchronized (this) {
+            if (status == STATUS_PENDING) {
+                throw new PendingException(this);
+            }
+            if (status == STATUS_REJECTED) {
+                throw exception;
+            }
+            return result;
         }
-        return result;
     }
 
-    private synchronized Promise<D> doFulfill(final D result) {
+    synchronized Promise<D> doFulfill(final D result) {
         if (status != STATUS_PENDING) {
             return this;
         }
         this.result = result;
         status = STATUS_FULFILLED;
-        notifyAll();
-        handler.sendEmptyMessage(1);
+        if (settled != null) {
+            settled.countDown();
+        }
+        send(handler.obtainMessage(1));
         return this;
     }
 
-    private synchronized Promise<D> doReject(final Exception exception) {
+    synchronized Promise<D> doReject(final Exception exception) {
         if (status != STATUS_PENDING) {
             return this;
         }
         this.exception = (exception == null)
                 ? new NullPointerException("Rejected with null") : exception;
+        if (site != null) {
+            AsyncStackTrace.attach(site, this.exception);
+        }
         status = STATUS_REJECTED;
-        notifyAll();
-        handler.sendEmptyMessage(1);
+        if (settled != null) {
+            settled.countDown();
+        }
+        send(handler.obtainMessage(1));
         return this;
     }
 
-    private synchronized Promise<D> doApply(final Promise<D> from) {
+    synchronized Promise<D> doApply(final Promise<D> from) {
         if (status != STATUS_PENDING) {
             return this;
         }
         result = from.result;
         exception = from.exception;
         status = from.status;
-        notifyAll();
-        handler.sendEmptyMessage(1);
+        if (settled != null) {
+            settled.countDown();
+        }
+        send(handler.obtainMessage(1));
         return this;
     }
 
-    private Promise<D> chain(Chain<D> chain) {
-        handler.sendMessage(handler.obtainMessage(0, chain));
+    private void send(Message message) {
+        switch (priority) {
+            case PRIORITY_IMMEDIATE:
+                PriorityLanes.sendImmediate(handler, message);
+                break;
+            case PRIORITY_BACKGROUND:
+                PriorityLanes.sendBackground(handler, message);
+                break;
+            case PRIORITY_IDLE:
+                PriorityLanes.sendIdle(handler, message);
+                break;
+            default:
+                handler.sendMessage(message);
+                break;
+        }
+    }
+
+    /**
+     * post runnable to the looper of this promise.
+     */
+    void post(Runnable runnable) {
+        handler.post(PromiseContext.wrap(runnable));
+    }
+
+    private <N> Promise<N> newStage() {
+        Promise<N> promise = new Promise<>(handler.getLooper());
+        promise.priority = priority;
+        if (PromiseRegistry.enabled) {
+            PromiseRegistry.link(this, promise);
+        }
+        if (site != null && promise.site == null && AsyncStackTrace.enabled) {
+            promise.site = AsyncStackTrace.capture(true);
+        }
+        return promise;
+    }
+
+    Promise<D> chain(Chain<D> chain) {
+        return enqueue(PromiseContext.wrap(chain));
+    }
+
+    /**
+     * add continuation which settles stage, so the stage is disposed with this promise.
+     */
+    private Promise<D> chain(Promise<?> stage, Chain<D> chain) {
+        return enqueue(new Staged<>(stage, PromiseContext.wrap(chain)));
+    }
+
+    private void run(Chain<D> chain) {
+        if (disposed && chain instanceof Staged) {
+            ((Staged<D>) chain).stage.dispose();
+            return;
+        }
+        chain.chain(this);
+    }
+
+    private Promise<D> enqueue(Chain<D> chain) {
+        touch();
+        send(handler.obtainMessage(0, chain));
         return this;
     }
 
+    /**
+     * add continuation without starting lazy function, and without locking this promise.
+     */
+    Promise<D> observe(Chain<D> chain) {
+        send(handler.obtainMessage(0, PromiseContext.wrap(chain)));
+        return this;
+    }
+
+    /**
+     * remove continuation which is not called yet.
+     */
+    synchronized void unchain(Chain<D> chain) {
+        if (this.chain != null) {
+            this.chain.remove(chain);
+        }
+        handler.removeMessages(0, chain);
+        PriorityLanes.removeMessages(handler, 0, chain);
+    }
+
     @NonNull
     public Promise<D> thenCallback(@Nullable Callback<D> fulfilled) {
         return thenCallback(fulfilled, null);
@@ -238,8 +612,8 @@ public final class Promise<D> {
 
     @NonNull
     public Promise<D> thenCallback(@Nullable final Callback<D> fulfilled, @Nullable final CallbackNonNull<Exception> rejected) {
-        final Promise<D> promise = new Promise<>(handler.getLooper());
-        chain(new Chain<D>() {
+        final Promise<D> promise = newStage();
+        chain(promise, new Chain<D>() {
             @Override
             public void chain(Promise<D> from) {
                 try {
@@ -257,6 +631,31 @@ public final class Promise<D> {
         return promise;
     }
 
+    @NonNull
+    public <O> Promise<D> thenCallbackWeak(@NonNull O owner, @Nullable OwnerCallback<O, D> fulfilled) {
+        return thenCallbackWeak(owner, fulfilled, null);
+    }
+
+    /**
+     * thenCallback which holds owner weakly.
+     *
+     * once owner is collected, callbacks are removed from this promise and never called,
+     * and returned promise is cancelled. callbacks should not refer to owner other than by the argument.
+     *
+     * @param owner object such as Activity or View, which callbacks are bound to
+     */
+    @NonNull
+    public <O> Promise<D> thenCallbackWeak(@NonNull O owner, @Nullable OwnerCallback<O, D> fulfilled,
+                                           @Nullable OwnerCallback<O, Exception> rejected) {
+        assertNonNull("owner should not be null.", owner);
+        Promise<D> promise = newStage();
+        WeakChain<O, D> weak = new WeakChain<>(owner, this, promise, fulfilled, rejected);
+        Chain<D> registered = new Staged<>(promise, PromiseContext.wrap(weak));
+        weak.setRegistered(registered);
+        enqueue(registered);
+        return promise;
+    }
+
     @NonNull
     public <N> Promise<N> thenFilter(@NonNull final Filter<D, N> fulfilled) {
         return thenFilter(fulfilled, null);
@@ -265,8 +664,8 @@ public final class Promise<D> {
     @NonNull
     public <N> Promise<N> thenFilter(@NonNull final Filter<D, N> fulfilled, @Nullable final FilterNonNull<Exception, N> rejected) {
         assertNonNull("fulfilled should be not null.", fulfilled);
-        final Promise<N> promise = new Promise<>(handler.getLooper());
-        chain(new Chain<D>() {
+        final Promise<N> promise = newStage();
+        chain(promise, new Chain<D>() {
             @Override
             public void chain(Promise<D> from) {
                 try {
@@ -295,8 +694,8 @@ public final class Promise<D> {
     @NonNull
     public <N> Promise<N> thenPipe(@NonNull final Pipe<D, N> fulfilled, @Nullable final PipeNonNull<Exception, N> rejected) {
         assertNonNull("fulfilled should be not null.", fulfilled);
-        final Promise<N> promise = new Promise<>(handler.getLooper());
-        chain(new Chain<D>() {
+        final Promise<N> promise = newStage();
+        chain(promise, new Chain<D>() {
             @Override
             public void chain(Promise<D> from) {
                 try {
@@ -308,6 +707,9 @@ public final class Promise<D> {
                             promise.doFulfill(null);
                             return;
                         }
+                        if (PromiseRegistry.enabled) {
+                            PromiseRegistry.link(piped, promise);
+                        }
                         piped.chain(new Chain<N>() {
                             @Override
                             public void chain(Promise<N> from) {
@@ -354,8 +756,8 @@ public final class Promise<D> {
 
     @NonNull
     public Promise<D> finallyCallback(@Nullable final CallbackNonNull<Promise<D>> callback) {
-        final Promise<D> promise = new Promise<>(handler.getLooper());
-        chain(new Chain<D>() {
+        final Promise<D> promise = newStage();
+        chain(promise, new Chain<D>() {
             @Override
             public void chain(Promise<D> from) {
                 try {
@@ -374,8 +776,8 @@ public final class Promise<D> {
     @NonNull
     public <N> Promise<N> finallyFilter(@NonNull final FilterNonNull<Promise<D>, N> filter) {
         assertNonNull("filter should be not null.", filter);
-        final Promise<N> promise = new Promise<>(handler.getLooper());
-        chain(new Chain<D>() {
+        final Promise<N> promise = newStage();
+        chain(promise, new Chain<D>() {
             @Override
             public void chain(Promise<D> from) {
                 try {
@@ -391,8 +793,8 @@ public final class Promise<D> {
     @NonNull
     public <N> Promise<N> finallyPipe(@NonNull final PipeNonNull<Promise<D>, N> pipe) {
         assertNonNull("Pipe should be not null.", pipe);
-        final Promise<N> promise = new Promise<>(handler.getLooper());
-        chain(new Chain<D>() {
+        final Promise<N> promise = newStage();
+        chain(promise, new Chain<D>() {
             @Override
             public void chain(Promise<D> from) {
                 try {
@@ -401,6 +803,9 @@ public final class Promise<D> {
                         promise.doFulfill(null);
                         return;
                     }
+                    if (PromiseRegistry.enabled) {
+                        PromiseRegistry.link(piped, promise);
+                    }
                     piped.chain(new Chain<N>() {
                         @Override
                         public void chain(Promise<N> from) {
@@ -415,14 +820,14 @@ public final class Promise<D> {
         return promise;
     }
 
-    private static void assertNonNull(String message, Object object) {
+    static void assertNonNull(String message, Object object) {
         if (object == null) {
             throw new NullPointerException(message);
         }
     }
 
     @NonNull
-    private static Looper getLooper() {
+    static Looper getLooper() {
         Looper looper = Looper.myLooper();
         if (looper != null) {
             return looper;
@@ -435,15 +840,45 @@ public final class Promise<D> {
     }
 
     @NonNull
-    public synchronized Promise<D> sync() {
-        if (status != STATUS_PENDING) {
-            return this;
-        }
+    public Promise<D> sync() {
         try {
-            wait();
+            awaitSettled();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
         return this;
     }
+
+    /**
+     * wait until settled, without holding the monitor of this promise.
+     *
+     * on a virtual thread only the virtual thread is parked, and its carrier thread is released.
+     *
+     * @return returns result
+     * @throws Exception rejected exception, or InterruptedException
+     * @throws IllegalStateException if pending and called on the looper of this promise, which could never settle it
+     */
+    @Nullable
+    public D await() throws Exception {
+        awaitSettled();
+        return getResult();
+    }
+
+    private void awaitSettled() throws InterruptedException {
+        touch();
+        CountDownLatch latch;
+        synchronized (this) {
+            if (status != STATUS_PENDING) {
+                return;
+            }
+            if (handler.getLooper() == Looper.myLooper()) {
+                throw new IllegalStateException("pending promise should not be awaited on its own looper.");
+            }
+            if (settled == null) {
+                settled = new CountDownLatch(1);
+            }
+            latch = settled;
+        }
+        latch.await();
+    }
 }
@@ -0,0 +1,202 @@
+package jp.rubi3.apromise;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * PromiseCache
+ *
+ * Maps keys to in-flight or settled promises.
+ * Concurrent gets for the same key share one Function call.
+ * Entries are held in lock-striped LRU segments, so lookups for different keys rarely contend.
+ * Pending entries are never evicted, so a segment may hold more than its share while all of its entries are loading.
+ *
+ * Continuations of a shared promise run on the looper of the caller which started the load.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class PromiseCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlMillis;
+    private final long rejectedTtlMillis;
+
+    /**
+     * create cache which keeps fulfilled results until evicted and does not keep rejections.
+     *
+     * @param maxSize maximum number of entries
+     */
+    public PromiseCache(int maxSize) {
+        this(maxSize, 0, 0);
+    }
+
+    /**
+     * create cache.
+     *
+     * @param maxSize maximum number of entries
+     * @param ttlMillis time to keep fulfilled results. never expire if 0 or less.
+     * @param rejectedTtlMillis time to keep rejections. rejections are removed immediately if 0 or less.
+     */
+    public PromiseCache(int maxSize, long ttlMillis, long rejectedTtlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize should be greater than 0.");
+        }
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 <= maxSize) {
+            count <<= 1;
+        }
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] segments = new Segment[count];
+        // split maxSize exactly, the first segments take one more entry each
+        int capacity = maxSize / count;
+        int remainder = maxSize % count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(i < remainder ? capacity + 1 : capacity);
+        }
+        this.segments = segments;
+        this.ttlMillis = ttlMillis;
+        this.rejectedTtlMillis = rejectedTtlMillis;
+    }
+
+    /**
+     * get cached promise or create one with function.
+     *
+     * @param key cache key
+     * @param function called only if no live entry exists for key
+     * @return returns shared promise for key
+     */
+    @NonNull
+    public Promise<V> get(@NonNull final K key, @NonNull Function<V> function) {
+        Promise.assertNonNull("key should not be null.", key);
+        Promise.assertNonNull("Function should not be null.", function);
+        final Segment<K, V> segment = segmentFor(key);
+        final Cached<V> entry;
+        long now = SystemClock.elapsedRealtime();
+        synchronized (segment) {
+            Cached<V> cached = segment.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                return cached.promise;
+            }
+            entry = new Cached<>(Promise.lazy(function));
+            segment.put(key, entry);
+        }
+        // starts the lazy function outside of the segment lock.
+        entry.promise.chain(new Promise.Chain<V>() {
+            @Override
+            public void chain(Promise<V> from) {
+                settled(segment, key, entry, from.status == Promise.STATUS_FULFILLED);
+            }
+        });
+        return entry.promise;
+    }
+
+    /**
+     * get cached promise.
+     *
+     * @param key cache key
+     * @return returns cached promise or null if absent or expired
+     */
+    @Nullable
+    public Promise<V> getIfPresent(@NonNull K key) {
+        Promise.assertNonNull("key should not be null.", key);
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Cached<V> cached = segment.get(key);
+            if (cached == null || cached.expiresAt <= SystemClock.elapsedRealtime()) {
+                return null;
+            }
+            return cached.promise;
+        }
+    }
+
+    public void invalidate(@NonNull K key) {
+        Promise.assertNonNull("key should not be null.", key);
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private void settled(Segment<K, V> segment, K key, Cached<V> entry, boolean fulfilled) {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (segment) {
+            entry.pending = false;
+            if (segment.get(key) != entry) {
+                return;
+            }
+            if (fulfilled) {
+                entry.expiresAt = ttlMillis > 0 ? now + ttlMillis : Long.MAX_VALUE;
+            } else if (rejectedTtlMillis > 0) {
+                entry.expiresAt = now + rejectedTtlMillis;
+            } else {
+                segment.remove(key);
+            }
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static final class Cached<V> {
+        final Promise<V> promise;
+        long expiresAt = Long.MAX_VALUE;
+        // guarded by the segment, as promise must not be locked while the segment is
+        boolean pending = true;
+
+        Cached(Promise<V> promise) {
+            this.promise = promise;
+        }
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Cached<V>> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            // evict the least recently used settled entry, so gets of loading keys still share one call
+            for (Iterator<Cached<V>> iterator = values().iterator(); iterator.hasNext(); ) {
+                if (!iterator.next().pending) {
+                    iterator.remove();
+                    break;
+                }
+            }
+            return false;
+        }
+    }
+}
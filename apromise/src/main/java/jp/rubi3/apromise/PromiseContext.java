@@ -0,0 +1,218 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ *
+ * PromiseContext
+ *
+ * Immutable map of values such as deadline, trace id or log tags, carried across loopers.
+ *
+ * The current context is captured when a promise, a lazy promise or a then*, catch* or finally* stage is created,
+ * and is attached to the thread while the function or callback runs, wherever it runs.
+ * Nothing is captured and nothing is allocated while the current context is empty.
+ *
+ * <pre>
+ * PromiseContext previous = PromiseContext.current().with(TRACE_ID, id).attach();
+ * try {
+ *     load().thenCallback(callback); // TRACE_ID is current in callback
+ * } finally {
+ *     PromiseContext.current().detach(previous);
+ * }
+ * </pre>
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class PromiseContext {
+    public static final PromiseContext EMPTY = new PromiseContext(new Object[0]);
+
+    private static final ThreadLocal<PromiseContext> CURRENT = new ThreadLocal<>();
+
+    // key, value, key, value...
+    private final Object[] entries;
+
+    /**
+     * key of context value. keys are compared by identity.
+     */
+    public static final class Key<T> {
+        private final String name;
+
+        public Key(@NonNull String name) {
+            Promise.assertNonNull("name should not be null.", name);
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private PromiseContext(Object[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return returns context attached to current thread
+     */
+    @NonNull
+    public static PromiseContext current() {
+        PromiseContext context = CURRENT.get();
+        return context != null ? context : EMPTY;
+    }
+
+    /**
+     * wrap runnable to run with current context, for executors outside of promises.
+     */
+    @NonNull
+    public static Runnable wrap(@NonNull final Runnable runnable) {
+        Promise.assertNonNull("runnable should not be null.", runnable);
+        final PromiseContext context = current();
+        if (context.isEmpty()) {
+            return runnable;
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                PromiseContext previous = context.attach();
+                try {
+                    runnable.run();
+                } finally {
+                    context.detach(previous);
+                }
+            }
+        };
+    }
+
+    static <D> Function<D> wrap(final Function<D> function) {
+        final PromiseContext context = current();
+        if (context.isEmpty()) {
+            return function;
+        }
+        return new Function<D>() {
+            @Override
+            public void function(@NonNull Resolver<D> resolver) throws Exception {
+                PromiseContext previous = context.attach();
+                try {
+                    function.function(resolver);
+                } finally {
+                    context.detach(previous);
+                }
+            }
+        };
+    }
+
+    static <D> Promise.Chain<D> wrap(final Promise.Chain<D> chain) {
+        final PromiseContext context = current();
+        if (context.isEmpty()) {
+            return chain;
+        }
+        return new Promise.Chain<D>() {
+            @Override
+            public void chain(Promise<D> from) {
+                PromiseContext previous = context.attach();
+                try {
+                    chain.chain(from);
+                } finally {
+                    context.detach(previous);
+                }
+            }
+        };
+    }
+
+    @Nullable
+    public <T> T get(@NonNull Key<T> key) {
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == key) {
+                @SuppressWarnings("unchecked")
+                T value = (T) entries[i + 1];
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return returns copy of this context with value. value is removed if null.
+     */
+    @NonNull
+    public <T> PromiseContext with(@NonNull Key<T> key, @Nullable T value) {
+        Promise.assertNonNull("key should not be null.", key);
+        if (value == null) {
+            return without(key);
+        }
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == key) {
+                if (entries[i + 1] == value) {
+                    return this;
+                }
+                Object[] copy = entries.clone();
+                copy[i + 1] = value;
+                return new PromiseContext(copy);
+            }
+        }
+        Object[] copy = new Object[entries.length + 2];
+        System.arraycopy(entries, 0, copy, 0, entries.length);
+        copy[entries.length] = key;
+        copy[entries.length + 1] = value;
+        return new PromiseContext(copy);
+    }
+
+    /**
+     * @return returns copy of this context without value
+     */
+    @NonNull
+    public PromiseContext without(@NonNull Key<?> key) {
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == key) {
+                if (entries.length == 2) {
+                    return EMPTY;
+                }
+                Object[] copy = new Object[entries.length - 2];
+                System.arraycopy(entries, 0, copy, 0, i);
+                System.arraycopy(entries, i + 2, copy, i, entries.length - i - 2);
+                return new PromiseContext(copy);
+            }
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    /**
+     * attach this context to current thread.
+     *
+     * @return returns previous context to pass to detach()
+     */
+    @NonNull
+    public PromiseContext attach() {
+        PromiseContext previous = current();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    /**
+     * restore context attached before attach().
+     *
+     * @param previous context returned by attach()
+     */
+    public void detach(@NonNull PromiseContext previous) {
+        Promise.assertNonNull("previous should not be null.", previous);
+        CURRENT.set(previous == EMPTY ? null : previous);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PromiseContext{");
+        for (int i = 0; i < entries.length; i += 2) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(entries[i]).append('=').append(entries[i + 1]);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,380 @@
+package jp.rubi3.apromise;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * PromiseDiskCache
+ *
+ * Persistent result cache backed by a memory-mapped append-only file and an in-memory index.
+ * Hits are deserialized from the mapping and returned as settled promises on the calling thread.
+ * Misses call the function and store its result on the cache's own thread.
+ *
+ * Concurrent misses for the same key are not merged. Put a PromiseCache in front of it for that.
+ *
+ * Record layout: key length (int), value length (int, -1 for removal), key (UTF-8), value.
+ * The file is mapped as a single buffer, so it is limited to Integer.MAX_VALUE bytes. Results which would cross it
+ * are not stored.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class PromiseDiskCache<V> implements Closeable {
+    private static final String TAG = "PromiseDiskCache";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x41505243;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int REMOVED = -1;
+    private static final long COMPACT_THRESHOLD = 256 * 1024;
+    private static final long MAX_LENGTH = Integer.MAX_VALUE;
+
+    private final File file;
+    private final Serializer<V> serializer;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Map<String, Location> index = new HashMap<>();
+    private RandomAccessFile data;
+    private MappedByteBuffer mapped;
+    private long length;
+    private long garbage;
+    private boolean closed;
+
+    public PromiseDiskCache(@NonNull File file, @NonNull Serializer<V> serializer) throws IOException {
+        Promise.assertNonNull("file should not be null.", file);
+        Promise.assertNonNull("serializer should not be null.", serializer);
+        this.file = file;
+        this.serializer = serializer;
+        open();
+        this.thread = new HandlerThread(TAG);
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * get stored result or create one with function.
+     *
+     * @param key cache key
+     * @param function called if key is not stored. fulfilled result will be stored.
+     * @return returns fulfilled promise if stored, or promise created with function
+     */
+    @NonNull
+    public Promise<V> get(@NonNull final String key, @NonNull Function<V> function) {
+        Promise.assertNonNull("Function should not be null.", function);
+        Promise<V> stored = getIfPresent(key);
+        if (stored != null) {
+            return stored;
+        }
+        Promise<V> promise = new Promise<>(function);
+        promise.chain(new Promise.Chain<V>() {
+            @Override
+            public void chain(Promise<V> from) {
+                if (from.status == Promise.STATUS_FULFILLED && from.result != null) {
+                    put(key, from.result);
+                }
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * get stored result.
+     *
+     * @param key cache key
+     * @return returns fulfilled promise or null if not stored
+     */
+    @Nullable
+    public Promise<V> getIfPresent(@NonNull String key) {
+        Promise.assertNonNull("key should not be null.", key);
+        byte[] bytes = read(key);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return Promise.resolve(serializer.deserialize(bytes));
+        } catch (Exception e) {
+            Log.w(TAG, "getIfPresent: drop unreadable entry " + key, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * store result asynchronously.
+     */
+    public void put(@NonNull final String key, @NonNull final V value) {
+        Promise.assertNonNull("key should not be null.", key);
+        Promise.assertNonNull("value should not be null.", value);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    append(key, serializer.serialize(value));
+                } catch (Exception e) {
+                    Log.w(TAG, "put: failed to store " + key, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * remove result asynchronously.
+     */
+    public void remove(@NonNull final String key) {
+        Promise.assertNonNull("key should not be null.", key);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    append(key, null);
+                } catch (IOException e) {
+                    Log.w(TAG, "remove: failed to remove " + key, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * rewrite data file with live entries only, asynchronously.
+     */
+    public void compact() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rewrite();
+                } catch (IOException e) {
+                    Log.w(TAG, "compact: failed", e);
+                }
+            }
+        });
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * close after pending writes.
+     */
+    @Override
+    public void close() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PromiseDiskCache.this) {
+                    closed = true;
+                    index.clear();
+                    mapped = null;
+                    try {
+                        data.close();
+                    } catch (IOException e) {
+                        Log.w(TAG, "close: failed", e);
+                    }
+                }
+                thread.quit();
+            }
+        });
+    }
+
+    @Nullable
+    private byte[] read(String key) {
+        ByteBuffer buffer;
+        Location location;
+        synchronized (this) {
+            location = index.get(key);
+            if (location == null || closed) {
+                return null;
+            }
+            try {
+                buffer = map(location.offset + location.length).duplicate();
+            } catch (IOException e) {
+                Log.w(TAG, "read: failed to map " + file, e);
+                return null;
+            }
+        }
+        byte[] bytes = new byte[location.length];
+        buffer.position((int) location.offset);
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private MappedByteBuffer map(long required) throws IOException {
+        if (mapped == null || mapped.limit() < required) {
+            mapped = data.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, MAX_LENGTH));
+        }
+        return mapped;
+    }
+
+    private void open() throws IOException {
+        data = new RandomAccessFile(file, "rw");
+        length = data.length();
+        if (length < HEADER_SIZE || data.readInt() != MAGIC || data.readInt() != VERSION) {
+            reset();
+            return;
+        }
+        ByteBuffer buffer = map(length);
+        long position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= Math.min(length, MAX_LENGTH)) {
+            buffer.position((int) position);
+            int keyLength = buffer.getInt();
+            int valueLength = buffer.getInt();
+            long next = position + RECORD_HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+            if (keyLength < 0 || valueLength < REMOVED || next > length || next > MAX_LENGTH) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            buffer.get(key);
+            long offset = position + RECORD_HEADER_SIZE + keyLength;
+            index(new String(key, UTF_8), valueLength == REMOVED ? null : new Location(offset, valueLength), next - position);
+            position = next;
+        }
+        if (position != length) {
+            Log.w(TAG, "open: truncate broken tail of " + file);
+            data.setLength(position);
+            length = position;
+            mapped = null;
+        }
+    }
+
+    private void reset() throws IOException {
+        data.setLength(0);
+        data.seek(0);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        length = HEADER_SIZE;
+        mapped = null;
+        index.clear();
+        garbage = 0;
+    }
+
+    private void index(String key, Location location, long recordSize) {
+        Location previous = location != null ? index.put(key, location) : index.remove(key);
+        if (previous != null) {
+            garbage += previous.recordSize;
+        }
+        if (location != null) {
+            location.recordSize = recordSize;
+        } else {
+            garbage += recordSize;
+        }
+    }
+
+    private void append(String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(UTF_8);
+        int valueLength = value != null ? value.length : REMOVED;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + Math.max(valueLength, 0));
+        record.putInt(keyBytes.length).putInt(valueLength).put(keyBytes);
+        if (value != null) {
+            record.put(value);
+        }
+        record.flip();
+        synchronized (this) {
+            if (closed || (value == null && !index.containsKey(key))) {
+                return;
+            }
+            if (length + record.limit() > MAX_LENGTH) {
+                if (value == null) {
+                    // compacted file has no record of the key, so it is removed without appending
+                    index.remove(key);
+                    rewrite();
+                    return;
+                }
+                if (garbage > 0) {
+                    rewrite();
+                }
+                if (length + record.limit() > MAX_LENGTH) {
+                    throw new IOException("Can't append " + record.limit() + " bytes to " + file + " over 2GB");
+                }
+            }
+            long position = length;
+            FileChannel channel = data.getChannel();
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+            length = position + record.limit();
+            index(key, value != null ? new Location(position + RECORD_HEADER_SIZE + keyBytes.length, valueLength) : null, record.limit());
+            if (garbage > COMPACT_THRESHOLD && garbage > length - garbage) {
+                rewrite();
+            }
+        }
+    }
+
+    private synchronized void rewrite() throws IOException {
+        if (closed) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        Map<String, Location> moved = new HashMap<>(index.size());
+        RandomAccessFile compacted = new RandomAccessFile(temp, "rw");
+        boolean renamed = false;
+        try {
+            try {
+                compacted.setLength(0);
+                compacted.writeInt(MAGIC);
+                compacted.writeInt(VERSION);
+                ByteBuffer buffer = map(length).duplicate();
+                for (Map.Entry<String, Location> entry : index.entrySet()) {
+                    byte[] key = entry.getKey().getBytes(UTF_8);
+                    Location location = entry.getValue();
+                    byte[] value = new byte[location.length];
+                    buffer.position((int) location.offset);
+                    buffer.get(value);
+                    long position = compacted.getFilePointer();
+                    compacted.writeInt(key.length);
+                    compacted.writeInt(value.length);
+                    compacted.write(key);
+                    compacted.write(value);
+                    Location next = new Location(position + RECORD_HEADER_SIZE + key.length, value.length);
+                    next.recordSize = location.recordSize;
+                    moved.put(entry.getKey(), next);
+                }
+                compacted.getFD().sync();
+            } finally {
+                compacted.close();
+            }
+            data.close();
+            renamed = temp.renameTo(file);
+            data = new RandomAccessFile(file, "rw");
+            length = data.length();
+            mapped = null;
+            if (!renamed) {
+                throw new IOException("Can't replace " + file);
+            }
+        } finally {
+            if (!renamed) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+            }
+        }
+        index.clear();
+        index.putAll(moved);
+        garbage = 0;
+    }
+
+    private static final class Location {
+        final long offset;
+        final int length;
+        long recordSize;
+
+        Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
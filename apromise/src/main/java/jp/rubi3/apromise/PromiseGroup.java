@@ -0,0 +1,237 @@
+package jp.rubi3.apromise;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ *
+ * PromiseGroup
+ *
+ * Fixed number of slots settled like promises, for fan-outs too large for a Promise each.
+ * Slots are kept in parallel status, result and exception arrays with one remaining counter,
+ * and only promises of the whole group are created, on demand.
+ *
+ * Slots can be settled from any thread, once each. Later calls are ignored.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class PromiseGroup<D> {
+    private static final int STATUS_SETTLING = -1;
+
+    private final Looper looper;
+    private final AtomicIntegerArray statuses;
+    private final Object[] results;
+    private final Exception[] exceptions;
+    private final AtomicInteger remaining;
+    private final AtomicInteger firstRejected = new AtomicInteger(-1);
+
+    private Promise<List<D>> all;
+    private Promise<PromiseGroup<D>> allSettled;
+
+    /**
+     * create group whose promises are on the current looper, or main looper.
+     *
+     * @param size number of slots
+     */
+    public PromiseGroup(int size) {
+        this(null, size);
+    }
+
+    /**
+     * create group whose promises are on looper.
+     *
+     * @param size number of slots
+     */
+    public PromiseGroup(@Nullable Looper looper, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size should not be negative.");
+        }
+        this.looper = looper != null ? looper : Promise.getLooper();
+        statuses = new AtomicIntegerArray(size);
+        results = new Object[size];
+        exceptions = new Exception[size];
+        remaining = new AtomicInteger(size);
+    }
+
+    public int size() {
+        return results.length;
+    }
+
+    /**
+     * @return returns number of pending slots
+     */
+    public int getRemaining() {
+        return remaining.get();
+    }
+
+    /**
+     * @return returns false if slot is already settled
+     */
+    public boolean fulfill(int index, @Nullable D result) {
+        if (!statuses.compareAndSet(index, Promise.STATUS_PENDING, STATUS_SETTLING)) {
+            return false;
+        }
+        results[index] = result;
+        statuses.set(index, Promise.STATUS_FULFILLED);
+        settled(false);
+        return true;
+    }
+
+    /**
+     * @return returns false if slot is already settled
+     */
+    public boolean reject(int index, @Nullable Exception exception) {
+        if (!statuses.compareAndSet(index, Promise.STATUS_PENDING, STATUS_SETTLING)) {
+            return false;
+        }
+        exceptions[index] = (exception == null) ? new NullPointerException("Rejected with null") : exception;
+        statuses.set(index, Promise.STATUS_REJECTED);
+        firstRejected.compareAndSet(-1, index);
+        settled(true);
+        return true;
+    }
+
+    /**
+     * @return returns resolver settling slot, to pass to a Function
+     */
+    @NonNull
+    public Resolver<D> resolver(final int index) {
+        if (index < 0 || index >= results.length) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of " + results.length + " slots.");
+        }
+        return new Resolver<D>() {
+            @Override
+            public void fulfill(D result) {
+                PromiseGroup.this.fulfill(index, result);
+            }
+
+            @Override
+            public void reject(Exception e) {
+                PromiseGroup.this.reject(index, e);
+            }
+        };
+    }
+
+    public boolean isPending(int index) {
+        int status = statuses.get(index);
+        return status == Promise.STATUS_PENDING || status == STATUS_SETTLING;
+    }
+
+    public boolean isFulfilled(int index) {
+        return statuses.get(index) == Promise.STATUS_FULFILLED;
+    }
+
+    public boolean isRejected(int index) {
+        return statuses.get(index) == Promise.STATUS_REJECTED;
+    }
+
+    /**
+     * @return returns result of fulfilled slot, or null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public D getResult(int index) {
+        return isFulfilled(index) ? (D) results[index] : null;
+    }
+
+    /**
+     * @return returns exception of rejected slot, or null
+     */
+    @Nullable
+    public Exception getException(int index) {
+        return isRejected(index) ? exceptions[index] : null;
+    }
+
+    /**
+     * @return returns promise fulfilled with results in the order of slots when all slots are fulfilled,
+     * or rejected with the first rejection
+     */
+    @NonNull
+    public synchronized Promise<List<D>> all() {
+        if (all == null) {
+            all = new Promise<>(looper);
+            int rejected = firstRejected.get();
+            if (rejected >= 0) {
+                all.doReject(exceptions[rejected]);
+            } else if (remaining.get() == 0) {
+                all.doFulfill(results());
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @return returns promise fulfilled with this group when all slots are settled
+     */
+    @NonNull
+    public synchronized Promise<PromiseGroup<D>> allSettled() {
+        if (allSettled == null) {
+            allSettled = new Promise<>(looper);
+            if (remaining.get() == 0) {
+                allSettled.doFulfill(this);
+            }
+        }
+        return allSettled;
+    }
+
+    /**
+     * fold results in the order of slots when all slots are settled.
+     *
+     * @param initial accumulated result to start with
+     * @param accumulator called with each result
+     * @return returns promise fulfilled with folded result, or rejected with the first rejection
+     */
+    @NonNull
+    public <N> Promise<N> fold(@Nullable final N initial, @NonNull final Accumulator<N, D> accumulator) {
+        Promise.assertNonNull("accumulator should not be null.", accumulator);
+        return allSettled().thenFilter(new Filter<PromiseGroup<D>, N>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public N filter(@Nullable PromiseGroup<D> result) throws Exception {
+                int rejected = firstRejected.get();
+                if (rejected >= 0) {
+                    throw exceptions[rejected];
+                }
+                N accumulated = initial;
+                for (Object one : results) {
+                    accumulated = accumulator.accumulate(accumulated, (D) one);
+                }
+                return accumulated;
+            }
+        });
+    }
+
+    private void settled(boolean rejected) {
+        int left = remaining.decrementAndGet();
+        if (!rejected && left != 0) {
+            return;
+        }
+        synchronized (this) {
+            if (rejected && all != null) {
+                all.doReject(exceptions[firstRejected.get()]);
+            }
+            if (left != 0) {
+                return;
+            }
+            if (all != null && firstRejected.get() < 0) {
+                all.doFulfill(results());
+            }
+            if (allSettled != null) {
+                allSettled.doFulfill(this);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<D> results() {
+        // slots are not written any more once all are settled
+        return (List<D>) Collections.unmodifiableList(Arrays.asList(results));
+    }
+}
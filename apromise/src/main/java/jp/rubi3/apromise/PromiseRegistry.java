@@ -0,0 +1,279 @@
+package jp.rubi3.apromise;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * PromiseRegistry
+ *
+ * Opt-in diagnostics of pending promises. While enabled, every sampleInterval-th promise is recorded
+ * with its creation site, together with promises chained from it by then*, catch*, finally* and all.
+ * Promises are held weakly, and settled ones are dropped when pending promises are listed.
+ *
+ * While disabled, promises only read one volatile flag.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class PromiseRegistry {
+    private static final String TAG = "PromiseRegistry";
+    private static final String PACKAGE = PromiseRegistry.class.getPackage().getName() + ".";
+
+    static volatile boolean enabled;
+
+    private static final Object LOCK = new Object();
+    private static final Map<Promise<?>, Record> RECORDS = new WeakHashMap<>();
+    private static final AtomicLong COUNT = new AtomicLong();
+    private static final AtomicLong IDS = new AtomicLong();
+    private static volatile int sampleInterval = 1;
+    private static volatile long leakThresholdMillis;
+
+    private PromiseRegistry() {
+    }
+
+    /**
+     * start recording promises.
+     *
+     * @param sampleInterval record one of every sampleInterval promises and promises chained from them
+     * @param leakThresholdMillis pending time to report as leak
+     */
+    public static void enable(int sampleInterval, long leakThresholdMillis) {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("sampleInterval should be greater than 0.");
+        }
+        PromiseRegistry.sampleInterval = sampleInterval;
+        PromiseRegistry.leakThresholdMillis = leakThresholdMillis;
+        enabled = true;
+    }
+
+    /**
+     * stop recording and forget recorded promises.
+     */
+    public static void disable() {
+        enabled = false;
+        synchronized (LOCK) {
+            RECORDS.clear();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void track(Promise<?> promise) {
+        if (COUNT.getAndIncrement() % sampleInterval != 0) {
+            return;
+        }
+        synchronized (LOCK) {
+            RECORDS.put(promise, new Record(promise));
+        }
+    }
+
+    static void link(Promise<?> parent, Promise<?> child) {
+        synchronized (LOCK) {
+            Record record = RECORDS.get(parent);
+            if (record == null) {
+                return;
+            }
+            Record dependent = RECORDS.get(child);
+            if (dependent == null) {
+                dependent = new Record(child);
+                RECORDS.put(child, dependent);
+            }
+            record.dependents.add(dependent);
+        }
+    }
+
+    /**
+     * @return returns recorded pending promises, oldest first
+     */
+    @NonNull
+    public static List<Pending> getPending() {
+        List<Record> records;
+        synchronized (LOCK) {
+            records = new ArrayList<>(RECORDS.values());
+        }
+        // promises are locked outside of LOCK, as they call link() holding their own lock
+        Set<Record> settled = new HashSet<>();
+        List<Record> pending = new ArrayList<>();
+        for (Record record : records) {
+            Promise<?> promise = record.get();
+            if (promise == null || !promise.isPending()) {
+                settled.add(record);
+            } else {
+                pending.add(record);
+            }
+        }
+        long now = SystemClock.uptimeMillis();
+        List<Pending> result = new ArrayList<>(pending.size());
+        synchronized (LOCK) {
+            for (Record record : settled) {
+                Promise<?> promise = record.get();
+                if (promise != null) {
+                    RECORDS.remove(promise);
+                }
+            }
+            for (Record record : pending) {
+                List<Long> dependents = new ArrayList<>();
+                for (Iterator<Record> iterator = record.dependents.iterator(); iterator.hasNext(); ) {
+                    Record dependent = iterator.next();
+                    if (settled.contains(dependent) || dependent.get() == null) {
+                        iterator.remove();
+                    } else {
+                        dependents.add(dependent.id);
+                    }
+                }
+                result.add(new Pending(record.id, now - record.createdAt, record.site, dependents));
+            }
+        }
+        Collections.sort(result, new Comparator<Pending>() {
+            @Override
+            public int compare(Pending lhs, Pending rhs) {
+                return lhs.ageMillis < rhs.ageMillis ? 1 : lhs.ageMillis == rhs.ageMillis ? 0 : -1;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return returns recorded promises pending longer than leak threshold, oldest first
+     */
+    @NonNull
+    public static List<Pending> getLeaks() {
+        List<Pending> leaks = new ArrayList<>();
+        for (Pending pending : getPending()) {
+            if (pending.ageMillis >= leakThresholdMillis) {
+                leaks.add(pending);
+            }
+        }
+        return leaks;
+    }
+
+    /**
+     * log leaks with their creation sites.
+     *
+     * @return returns number of leaks
+     */
+    public static int logLeaks() {
+        List<Pending> leaks = getLeaks();
+        for (Pending leak : leaks) {
+            Log.w(TAG, leak.toString(), leak.site);
+        }
+        return leaks.size();
+    }
+
+    /**
+     * @return returns pending promises and their dependents as text
+     */
+    @NonNull
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Pending pending : getPending()) {
+            builder.append(pending).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return returns pending promises and their dependents as graphviz dot
+     */
+    @NonNull
+    public static String dumpDot() {
+        StringBuilder builder = new StringBuilder("digraph promises {\n");
+        for (Pending pending : getPending()) {
+            builder.append("  p").append(pending.id)
+                    .append(" [label=\"#").append(pending.id).append(' ').append(pending.ageMillis).append("ms\\n")
+                    .append(pending.getCreationSite().replace("\"", "\\\"")).append("\"")
+                    .append(pending.ageMillis >= leakThresholdMillis ? ", color=red" : "")
+                    .append("];\n");
+            for (Long dependent : pending.dependents) {
+                builder.append("  p").append(pending.id).append(" -> p").append(dependent).append(";\n");
+            }
+        }
+        return builder.append("}\n").toString();
+    }
+
+    /**
+     * recorded pending promise.
+     */
+    public static final class Pending {
+        private final long id;
+        private final long ageMillis;
+        private final Throwable site;
+        private final List<Long> dependents;
+
+        Pending(long id, long ageMillis, Throwable site, List<Long> dependents) {
+            this.id = id;
+            this.ageMillis = ageMillis;
+            this.site = site;
+            this.dependents = Collections.unmodifiableList(dependents);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getAgeMillis() {
+            return ageMillis;
+        }
+
+        /**
+         * @return returns first frame outside of this library where the promise was created
+         */
+        @NonNull
+        public String getCreationSite() {
+            for (StackTraceElement element : site.getStackTrace()) {
+                String name = element.getClassName();
+                if (!name.startsWith(PACKAGE) || name.indexOf('.', PACKAGE.length()) >= 0) {
+                    return element.toString();
+                }
+            }
+            return "unknown";
+        }
+
+        /**
+         * @return returns stack trace where the promise was created
+         */
+        @NonNull
+        public Throwable getCreationTrace() {
+            return site;
+        }
+
+        /**
+         * @return returns ids of recorded promises chained from this promise
+         */
+        @NonNull
+        public List<Long> getDependents() {
+            return dependents;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + " pending " + ageMillis + "ms at " + getCreationSite() + " dependents=" + dependents;
+        }
+    }
+
+    private static final class Record extends WeakReference<Promise<?>> {
+        final long id = IDS.incrementAndGet();
+        final long createdAt = SystemClock.uptimeMillis();
+        final Throwable site = new Throwable("Promise created");
+        final List<Record> dependents = new ArrayList<>(1);
+
+        Record(Promise<?> promise) {
+            super(promise);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package jp.rubi3.apromise;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * PromiseScope
+ *
+ * Owns promises launched in or added to it. close() cancels every pending child at once.
+ * Cancelled children are rejected with CancellationException, and their then*, catch* and finally* continuations
+ * are never called and are released, so callbacks and whatever they capture become unreachable.
+ * Promises returned by those continuations are cancelled in turn, so waiting on them does not hang.
+ *
+ * Promises launched or added after close() are cancelled immediately.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class PromiseScope implements Closeable {
+    private final Set<Promise<?>> children = Collections.newSetFromMap(new IdentityHashMap<Promise<?>, Boolean>());
+    private final List<Promise<Void>> joiners = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * create promise with function on current looper, owned by this scope.
+     */
+    @NonNull
+    public <D> Promise<D> launch(@NonNull Function<D> function) {
+        return launch(null, function);
+    }
+
+    /**
+     * create promise with function, owned by this scope.
+     */
+    @NonNull
+    public <D> Promise<D> launch(@Nullable Looper looper, @NonNull Function<D> function) {
+        Promise.assertNonNull("Function should not be null.", function);
+        if (isClosed()) {
+            Promise<D> promise = new Promise<>(looper == null ? Promise.getLooper() : looper);
+            promise.dispose();
+            return promise;
+        }
+        return add(new Promise<>(looper, function));
+    }
+
+    /**
+     * own promise.
+     *
+     * @return returns promise
+     */
+    @NonNull
+    public <D> Promise<D> add(@NonNull final Promise<D> promise) {
+        Promise.assertNonNull("promise should not be null.", promise);
+        // promise is never locked while this is, as the promise calls remove() holding its own lock
+        boolean pending = promise.isPending();
+        boolean added;
+        synchronized (this) {
+            added = !closed && pending && children.add(promise);
+            if (!closed && !added) {
+                return promise;
+            }
+        }
+        if (!added) {
+            promise.dispose();
+            return promise;
+        }
+        // observed without starting a lazy promise, which is started only by its own consumers
+        promise.observe(new Promise.Chain<D>() {
+            @Override
+            public void chain(Promise<D> from) {
+                remove(from);
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * @return returns promise fulfilled when all children are settled or this scope is closed
+     */
+    @NonNull
+    public Promise<Void> join() {
+        Promise<Void> promise = new Promise<>(Promise.getLooper());
+        synchronized (this) {
+            if (!children.isEmpty()) {
+                joiners.add(promise);
+                return promise;
+            }
+        }
+        return promise.doFulfill(null);
+    }
+
+    /**
+     * close this scope when activity is destroyed.
+     *
+     * @return returns this
+     */
+    @NonNull
+    public PromiseScope bind(@NonNull final Activity activity) {
+        Promise.assertNonNull("activity should not be null.", activity);
+        final Application application = activity.getApplication();
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityDestroyed(Activity destroyed) {
+                if (destroyed == activity) {
+                    application.unregisterActivityLifecycleCallbacks(this);
+                    close();
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle bundle) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle bundle) {
+            }
+        });
+        return this;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return returns number of pending children
+     */
+    public synchronized int size() {
+        return children.size();
+    }
+
+    /**
+     * cancel all pending children.
+     */
+    @Override
+    public void close() {
+        List<Promise<?>> cancelled;
+        List<Promise<Void>> joined;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancelled = new ArrayList<>(children);
+            children.clear();
+            joined = new ArrayList<>(joiners);
+            joiners.clear();
+        }
+        for (Promise<?> child : cancelled) {
+            child.dispose();
+        }
+        for (Promise<Void> joiner : joined) {
+            joiner.doFulfill(null);
+        }
+    }
+
+    private void remove(Promise<?> promise) {
+        List<Promise<Void>> joined;
+        synchronized (this) {
+            if (!children.remove(promise) || !children.isEmpty()) {
+                return;
+            }
+            joined = new ArrayList<>(joiners);
+            joiners.clear();
+        }
+        for (Promise<Void> joiner : joined) {
+            joiner.doFulfill(null);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package jp.rubi3.apromise;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.TimerTask;
+import java.util.concurrent.TimeoutException;
+
+/**
+ *
+ * Retry
+ *
+ * Drives Promise.retry. Holds the current attempt number, and the attempt in flight only to cancel it
+ * once the retry is settled, by timeout or by cancel().
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+final class Retry<D> implements Promise.Chain<D>, Runnable {
+    private final Handler handler;
+    private final Function<D> function;
+    private final Pipe<Integer, D> pipe;
+    private final RetryPolicy policy;
+    private final Promise<D> promise;
+    private long deadline;
+    private int attempt;
+    // touched on the looper only
+    private Promise<D> current;
+
+    Retry(@NonNull Looper looper, Function<D> function, Pipe<Integer, D> pipe, @NonNull RetryPolicy policy) {
+        this.handler = new Handler(looper);
+        this.function = function;
+        this.pipe = pipe;
+        this.policy = policy;
+        this.promise = new Promise<>(looper);
+    }
+
+    @NonNull
+    Promise<D> start() {
+        long timeout = policy.getTimeout();
+        if (timeout > 0) {
+            deadline = SystemClock.uptimeMillis() + timeout;
+            final TimerTask task = SharedTimer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    promise.doReject(new TimeoutException("Retry timed out."));
+                }
+            }, timeout);
+            promise.chain(new Promise.Chain<D>() {
+                @Override
+                public void chain(Promise<D> from) {
+                    SharedTimer.cancel(task);
+                }
+            });
+        }
+        promise.chain(new Promise.Chain<D>() {
+            @Override
+            public void chain(Promise<D> from) {
+                Promise<D> attempt = current;
+                current = null;
+                if (attempt != null) {
+                    attempt.cancel();
+                }
+            }
+        });
+        run();
+        return promise;
+    }
+
+    @Override
+    public void run() {
+        if (handler.getLooper() != Looper.myLooper()) {
+            handler.post(PromiseContext.wrap((Runnable) this));
+            return;
+        }
+        if (!promise.isPending()) {
+            return;
+        }
+        attempt++;
+        Promise<D> next;
+        try {
+            next = function != null ? new Promise<>(handler.getLooper(), function) : pipe.pipe(attempt);
+        } catch (Exception e) {
+            failed(e);
+            return;
+        }
+        if (next == null) {
+            promise.doFulfill(null);
+            return;
+        }
+        current = next;
+        next.chain(this);
+    }
+
+    @Override
+    public void chain(Promise<D> from) {
+        if (current == from) {
+            current = null;
+        }
+        if (from.status == Promise.STATUS_FULFILLED) {
+            promise.doApply(from);
+            return;
+        }
+        failed(from.exception);
+    }
+
+    private void failed(Exception exception) {
+        if (!promise.isPending()) {
+            return;
+        }
+        try {
+            if (attempt >= policy.getMaxAttempts() || !policy.shouldRetry(exception)) {
+                promise.doReject(exception);
+                return;
+            }
+        } catch (Exception e) {
+            promise.doReject(e);
+            return;
+        }
+        long delay = policy.delay(attempt);
+        if (deadline > 0 && SystemClock.uptimeMillis() + delay >= deadline) {
+            promise.doReject(exception);
+            return;
+        }
+        SharedTimer.schedule(this, delay);
+    }
+}
@@ -0,0 +1,124 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Random;
+
+/**
+ *
+ * RetryPolicy
+ *
+ * Exponential backoff with optional jitter for Promise.retry.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class RetryPolicy {
+    private static final Random RANDOM = new Random();
+    /** upper bound of delay, so deadlines and timer do not overflow. */
+    private static final long MAX_DELAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private long maxDelayMillis = Long.MAX_VALUE;
+    private double multiplier = 2;
+    private double jitter;
+    private long timeoutMillis;
+    private FilterNonNull<Exception, Boolean> retryIf;
+
+    /**
+     * create policy.
+     *
+     * @param maxAttempts maximum number of attempts including the first one
+     * @param initialDelayMillis delay before the second attempt
+     */
+    public RetryPolicy(int maxAttempts, long initialDelayMillis) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts should be greater than 0.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = Math.max(0, initialDelayMillis);
+    }
+
+    /**
+     * @param maxDelayMillis upper bound of delay between attempts. delay never exceeds one day.
+     */
+    @NonNull
+    public RetryPolicy setMaxDelay(long maxDelayMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+        return this;
+    }
+
+    /**
+     * @param multiplier delay is multiplied by this after each attempt. 2 by default.
+     * @throws IllegalArgumentException if multiplier is less than 1
+     */
+    @NonNull
+    public RetryPolicy setMultiplier(double multiplier) {
+        if (Double.isNaN(multiplier) || multiplier < 1) {
+            throw new IllegalArgumentException("multiplier should not be less than 1.");
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * @param jitter fraction of delay to randomize, between 0 and 1. 0 by default.
+     */
+    @NonNull
+    public RetryPolicy setJitter(double jitter) {
+        this.jitter = Math.min(1, Math.max(0, jitter));
+        return this;
+    }
+
+    /**
+     * @param timeoutMillis overall deadline from the first attempt. no deadline if 0 or less.
+     */
+    @NonNull
+    public RetryPolicy setTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * @param retryIf returns true to retry after the exception. every exception is retried if null.
+     */
+    @NonNull
+    public RetryPolicy setRetryIf(@Nullable FilterNonNull<Exception, Boolean> retryIf) {
+        this.retryIf = retryIf;
+        return this;
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    long getTimeout() {
+        return timeoutMillis;
+    }
+
+    boolean shouldRetry(@NonNull Exception exception) throws Exception {
+        if (retryIf == null) {
+            return true;
+        }
+        Boolean retry = retryIf.filter(exception);
+        return retry != null && retry;
+    }
+
+    /**
+     * @param attempt number of finished attempts
+     * @return returns delay before the next attempt
+     */
+    long delay(int attempt) {
+        if (initialDelayMillis == 0) {
+            return 0;
+        }
+        // pow grows to infinity after enough attempts, which min() caps
+        double delay = initialDelayMillis * Math.pow(multiplier, attempt - 1);
+        delay = Math.min(delay, Math.min(maxDelayMillis, MAX_DELAY_MILLIS));
+        if (jitter > 0) {
+            delay *= 1 - jitter * RANDOM.nextDouble();
+        }
+        return Math.max(0, (long) delay);
+    }
+}
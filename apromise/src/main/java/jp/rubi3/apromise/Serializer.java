@@ -0,0 +1,31 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+
+/**
+ *
+ * Serializer
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public interface Serializer<D> {
+    /**
+     * serialize
+     *
+     * @param object object to store
+     * @return bytes to store
+     * @throws Exception to skip storing
+     */
+    @NonNull
+    byte[] serialize(@NonNull D object) throws Exception;
+
+    /**
+     * deserialize
+     *
+     * @param bytes stored bytes
+     * @return restored object
+     * @throws Exception to treat as missing
+     */
+    @NonNull
+    D deserialize(@NonNull byte[] bytes) throws Exception;
+}
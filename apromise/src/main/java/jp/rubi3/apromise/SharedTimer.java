@@ -0,0 +1,53 @@
+package jp.rubi3.apromise;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * SharedTimer
+ *
+ * One daemon timer thread for every delayed task in the library.
+ * Tasks should only settle promises or post to a looper.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+final class SharedTimer {
+    private static final String TAG = "SharedTimer";
+    private static final int PURGE_INTERVAL = 64;
+    private static final Timer TIMER = new Timer(TAG, true);
+    private static final AtomicInteger CANCELLED = new AtomicInteger();
+
+    private SharedTimer() {
+    }
+
+    @NonNull
+    static TimerTask schedule(@NonNull Runnable runnable, long delayMillis) {
+        final Runnable wrapped = PromiseContext.wrap(runnable);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    wrapped.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "run: task failed", e);
+                }
+            }
+        };
+        TIMER.schedule(task, Math.max(0, delayMillis));
+        return task;
+    }
+
+    static void cancel(TimerTask task) {
+        if (task == null || !task.cancel()) {
+            return;
+        }
+        if (CANCELLED.incrementAndGet() % PURGE_INTERVAL == 0) {
+            TIMER.purge();
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package jp.rubi3.apromise;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * TaskGraph
+ *
+ * Named tasks with dependencies. Each task is started as soon as all of its dependencies are fulfilled,
+ * with a map of their results, so independent tasks run in parallel as far as their promises do.
+ *
+ * Tasks are called on the looper given to execute(). The graph is rejected with the first rejection,
+ * and tasks depending on a rejected task are never started.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+public final class TaskGraph {
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * add task.
+     *
+     * @param name unique name of task
+     * @param task called with results of dependencies mapped by name
+     * @param dependencies names of tasks to wait for
+     * @return returns this
+     */
+    @NonNull
+    public TaskGraph add(@NonNull String name, @NonNull Pipe<Map<String, Object>, ?> task, @NonNull String... dependencies) {
+        Promise.assertNonNull("name should not be null.", name);
+        Promise.assertNonNull("task should not be null.", task);
+        Promise.assertNonNull("dependencies should not be null.", dependencies);
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("task " + name + " is already added.");
+        }
+        nodes.put(name, new Node(name, task, dependencies.clone()));
+        return this;
+    }
+
+    /**
+     * validate graph.
+     *
+     * @return returns names of tasks in topological order
+     * @throws IllegalStateException if dependency is missing or graph has cycle
+     */
+    @NonNull
+    public List<String> validate() {
+        Map<String, Integer> indegrees = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Node node : nodes.values()) {
+            indegrees.put(node.name, node.dependencies.length);
+            for (String dependency : node.dependencies) {
+                if (!nodes.containsKey(dependency)) {
+                    throw new IllegalStateException("task " + node.name + " depends on missing task " + dependency + ".");
+                }
+                List<String> list = dependents.get(dependency);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    dependents.put(dependency, list);
+                }
+                list.add(node.name);
+            }
+        }
+        List<String> order = new ArrayList<>(nodes.size());
+        Deque<String> ready = new ArrayDeque<>();
+        for (Map.Entry<String, Integer> entry : indegrees.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
+            }
+        }
+        while (!ready.isEmpty()) {
+            String name = ready.poll();
+            order.add(name);
+            List<String> list = dependents.get(name);
+            if (list == null) {
+                continue;
+            }
+            for (String dependent : list) {
+                int indegree = indegrees.get(dependent) - 1;
+                indegrees.put(dependent, indegree);
+                if (indegree == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() < nodes.size()) {
+            throw new IllegalStateException("task graph has cycle " + findCycle(indegrees) + ".");
+        }
+        return order;
+    }
+
+    /**
+     * execute tasks on current looper.
+     */
+    @NonNull
+    public Promise<Result> execute() {
+        return execute(null);
+    }
+
+    /**
+     * execute tasks.
+     *
+     * @param looper looper to call tasks on. current looper if null
+     * @return returns promise fulfilled with results and timings
+     * @throws IllegalStateException if dependency is missing or graph has cycle
+     */
+    @NonNull
+    public Promise<Result> execute(@Nullable Looper looper) {
+        validate();
+        if (looper == null) {
+            looper = Promise.getLooper();
+        }
+        Run run = new Run(looper, new ArrayList<>(nodes.values()));
+        new Handler(looper).post(run);
+        return run.promise;
+    }
+
+    private String findCycle(Map<String, Integer> indegrees) {
+        // nodes left with indegree are on or behind a cycle. walk dependencies until one repeats.
+        String name = null;
+        for (Map.Entry<String, Integer> entry : indegrees.entrySet()) {
+            if (entry.getValue() > 0) {
+                name = entry.getKey();
+                break;
+            }
+        }
+        List<String> path = new ArrayList<>();
+        while (!path.contains(name)) {
+            path.add(name);
+            for (String dependency : nodes.get(name).dependencies) {
+                if (indegrees.get(dependency) > 0) {
+                    name = dependency;
+                    break;
+                }
+            }
+        }
+        List<String> cycle = new ArrayList<>(path.subList(path.indexOf(name), path.size()));
+        cycle.add(name);
+        Collections.reverse(cycle);
+        StringBuilder builder = new StringBuilder();
+        for (String one : cycle) {
+            if (builder.length() > 0) {
+                builder.append(" -> ");
+            }
+            builder.append(one);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * results and timings of executed graph. times are milliseconds from start of execution.
+     */
+    public static final class Result {
+        private final Map<String, Object> results;
+        private final Map<String, long[]> timings;
+        private final List<String> criticalPath;
+        private final long totalMillis;
+
+        Result(Map<String, Object> results, Map<String, long[]> timings, List<String> criticalPath, long totalMillis) {
+            this.results = Collections.unmodifiableMap(results);
+            this.timings = timings;
+            this.criticalPath = Collections.unmodifiableList(criticalPath);
+            this.totalMillis = totalMillis;
+        }
+
+        @NonNull
+        public Map<String, Object> getResults() {
+            return results;
+        }
+
+        @Nullable
+        public Object get(@NonNull String name) {
+            return results.get(name);
+        }
+
+        public long getStartMillis(@NonNull String name) {
+            return timing(name)[0];
+        }
+
+        public long getEndMillis(@NonNull String name) {
+            return timing(name)[1];
+        }
+
+        public long getDurationMillis(@NonNull String name) {
+            long[] timing = timing(name);
+            return timing[1] - timing[0];
+        }
+
+        /**
+         * @return returns tasks which finished last, each waiting for the previous one
+         */
+        @NonNull
+        public List<String> getCriticalPath() {
+            return criticalPath;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        private long[] timing(String name) {
+            long[] timing = timings.get(name);
+            if (timing == null) {
+                throw new IllegalArgumentException("task " + name + " is not found.");
+            }
+            return timing;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("TaskGraph.Result{total=").append(totalMillis).append("ms, critical=[");
+            for (int i = 0; i < criticalPath.size(); i++) {
+                String name = criticalPath.get(i);
+                long[] timing = timings.get(name);
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(name).append(' ').append(timing[0]).append('-').append(timing[1]).append("ms");
+            }
+            return builder.append("]}").toString();
+        }
+    }
+
+    private static final class Node {
+        final String name;
+        final Pipe<Map<String, Object>, ?> task;
+        final String[] dependencies;
+
+        Node(String name, Pipe<Map<String, Object>, ?> task, String[] dependencies) {
+            this.name = name;
+            this.task = task;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * state of one execution. only touched on the looper.
+     */
+    private static final class Run implements Runnable {
+        final Promise<Result> promise;
+        private final Looper looper;
+        private final List<Node> nodes;
+        private final Map<String, List<Node>> dependents = new HashMap<>();
+        private final Map<Node, Integer> waiting = new HashMap<>();
+        private final Map<String, Object> results = new HashMap<>();
+        private final Map<String, long[]> timings = new HashMap<>();
+        private long startedAt;
+        private int remaining;
+
+        Run(Looper looper, List<Node> nodes) {
+            this.promise = new Promise<>(looper);
+            this.looper = looper;
+            this.nodes = nodes;
+            this.remaining = nodes.size();
+            for (Node node : nodes) {
+                waiting.put(node, node.dependencies.length);
+                for (String dependency : node.dependencies) {
+                    List<Node> list = dependents.get(dependency);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        dependents.put(dependency, list);
+                    }
+                    list.add(node);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            startedAt = SystemClock.uptimeMillis();
+            if (remaining == 0) {
+                finish();
+                return;
+            }
+            for (Node node : nodes) {
+                if (node.dependencies.length == 0) {
+                    launch(node);
+                }
+            }
+        }
+
+        private void launch(final Node node) {
+            if (!promise.isPending()) {
+                return;
+            }
+            Map<String, Object> inputs = new HashMap<>();
+            for (String dependency : node.dependencies) {
+                inputs.put(dependency, results.get(dependency));
+            }
+            timings.put(node.name, new long[]{SystemClock.uptimeMillis() - startedAt, 0});
+            @SuppressWarnings("unchecked")
+            Pipe<Map<String, Object>, Object> task = (Pipe<Map<String, Object>, Object>) node.task;
+            Promise<Object> piped;
+            try {
+                piped = task.pipe(Collections.unmodifiableMap(inputs));
+            } catch (Exception e) {
+                promise.doReject(e);
+                return;
+            }
+            if (piped == null) {
+                complete(node, null);
+                return;
+            }
+            final Promise<Object> settled = new Promise<>(looper);
+            piped.chain(new Promise.Chain<Object>() {
+                @Override
+                public void chain(Promise<Object> from) {
+                    settled.doApply(from);
+                }
+            });
+            settled.chain(new Promise.Chain<Object>() {
+                @Override
+                public void chain(Promise<Object> from) {
+                    if (from.status != Promise.STATUS_FULFILLED) {
+                        promise.doReject(from.exception);
+                        return;
+                    }
+                    complete(node, from.result);
+                }
+            });
+        }
+
+        private void complete(Node node, Object result) {
+            timings.get(node.name)[1] = SystemClock.uptimeMillis() - startedAt;
+            results.put(node.name, result);
+            if (--remaining == 0) {
+                finish();
+                return;
+            }
+            List<Node> list = dependents.get(node.name);
+            if (list == null) {
+                return;
+            }
+            for (Node dependent : list) {
+                int count = waiting.get(dependent) - 1;
+                waiting.put(dependent, count);
+                if (count == 0) {
+                    launch(dependent);
+                }
+            }
+        }
+
+        private void finish() {
+            Map<String, Node> byName = new HashMap<>();
+            Node last = null;
+            for (Node node : nodes) {
+                byName.put(node.name, node);
+                if (last == null || timings.get(node.name)[1] > timings.get(last.name)[1]) {
+                    last = node;
+                }
+            }
+            List<String> path = new ArrayList<>();
+            while (last != null) {
+                path.add(last.name);
+                Node gate = null;
+                for (String dependency : last.dependencies) {
+                    Node candidate = byName.get(dependency);
+                    if (gate == null || timings.get(candidate.name)[1] > timings.get(gate.name)[1]) {
+                        gate = candidate;
+                    }
+                }
+                last = gate;
+            }
+            Collections.reverse(path);
+            long total = SystemClock.uptimeMillis() - startedAt;
+            promise.doFulfill(new Result(new LinkedHashMap<>(results), timings, path, total));
+        }
+    }
+}
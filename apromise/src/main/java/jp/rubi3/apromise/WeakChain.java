@@ -0,0 +1,88 @@
+package jp.rubi3.apromise;
+
+import android.util.Log;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ *
+ * WeakChain
+ *
+ * Continuation which holds its owner weakly. When the owner is collected, one daemon thread
+ * removes the continuation from its source promise and disposes the promise chained from it.
+ *
+ * Created by halmakey on 2026/10/19.
+ */
+final class WeakChain<O, D> extends WeakReference<O> implements Promise.Chain<D> {
+    private static final String TAG = "WeakChain";
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+    static {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        ((WeakChain<?, ?>) QUEUE.remove()).prune();
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "run: prune failed", e);
+                    }
+                }
+            }
+        }, TAG);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private final Promise<D> source;
+    private final Promise<D> promise;
+    private final OwnerCallback<O, D> fulfilled;
+    private final OwnerCallback<O, Exception> rejected;
+    private volatile Promise.Chain<D> registered;
+
+    WeakChain(O owner, Promise<D> source, Promise<D> promise,
+              OwnerCallback<O, D> fulfilled, OwnerCallback<O, Exception> rejected) {
+        super(owner, QUEUE);
+        this.source = source;
+        this.promise = promise;
+        this.fulfilled = fulfilled;
+        this.rejected = rejected;
+    }
+
+    /**
+     * @param registered this chain as added to the source, possibly wrapped
+     */
+    void setRegistered(Promise.Chain<D> registered) {
+        this.registered = registered;
+    }
+
+    @Override
+    public void chain(Promise<D> from) {
+        O owner = get();
+        if (owner == null) {
+            promise.dispose();
+            return;
+        }
+        try {
+            if (from.status == Promise.STATUS_FULFILLED && fulfilled != null) {
+                fulfilled.callback(owner, from.result);
+            } else if (from.status == Promise.STATUS_REJECTED && rejected != null) {
+                rejected.callback(owner, from.exception);
+            }
+            promise.doApply(from);
+        } catch (Exception e) {
+            promise.doReject(e);
+        }
+    }
+
+    private void prune() {
+        Promise.Chain<D> chain = registered;
+        if (chain != null) {
+            source.unchain(chain);
+        }
+        promise.dispose();
+    }
+}